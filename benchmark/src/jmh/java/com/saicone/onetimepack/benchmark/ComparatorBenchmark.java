@@ -0,0 +1,105 @@
+package com.saicone.onetimepack.benchmark;
+
+import com.saicone.onetimepack.util.ValueComparator;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ComparatorBenchmark {
+
+    @Param({"!UUID OR !HASH OR URL", "UUID AND URL", "!HASH AND URL OR PROMPT", "ALL"})
+    public String expression;
+
+    @Param({"true", "false"})
+    public boolean matching;
+
+    private ValueComparator<TestPack> chain;
+    private ValueComparator<TestPack> plan;
+
+    private TestPack pack1;
+    private TestPack pack2;
+    private Object[] fingerprint1;
+    private Object[] fingerprint2;
+
+    @Setup
+    public void setup() {
+        final ValueComparator.Provider<TestPack> provider = TestPack::comparator;
+        chain = chain(expression, provider);
+        plan = ValueComparator.read(expression, provider);
+
+        pack1 = new TestPack(UUID.randomUUID(), "https://example.com/pack.zip", "0123456789abcdef0123456789abcdef01234567", "{\"text\":\"Please accept\"}");
+        if (matching) {
+            pack2 = new TestPack(pack1.uniqueId(), pack1.url(), pack1.hash(), pack1.prompt());
+        } else {
+            pack2 = new TestPack(UUID.randomUUID(), "https://example.com/other.zip", "76543210fedcba9876543210fedcba9876543210", null);
+        }
+        fingerprint1 = plan.extract(pack1);
+        fingerprint2 = plan.extract(pack2);
+    }
+
+    // Copy of ValueComparator.read as it was before expressions were compiled
+    private static <E> ValueComparator<E> chain(@NotNull String str, @NotNull ValueComparator.Provider<E> provider) {
+        ValueComparator<E> result = null;
+        for (String block : str.split("(?i) (AND|&&) ")) {
+            ValueComparator<E> append = null;
+            if (block.contains(" OR ")) {
+                for (String optional : block.split("(?i) (OR|[|][|]) ")) {
+                    final ValueComparator<E> comparator = provider.readComparator(optional);
+                    if (append == null) {
+                        append = comparator;
+                    } else if (comparator != null) {
+                        append = append.or(comparator);
+                    }
+                }
+            } else {
+                append = provider.readComparator(block);
+            }
+
+            if (append != null) {
+                if (result == null) {
+                    result = append;
+                } else {
+                    result = result.and(append);
+                }
+            }
+        }
+        return result != null ? result : e -> true;
+    }
+
+    @Benchmark
+    public boolean chainMatches() {
+        return chain.matches(pack1, pack2);
+    }
+
+    @Benchmark
+    public boolean planMatches() {
+        return plan.matches(pack1, pack2);
+    }
+
+    @Benchmark
+    public boolean planFingerprintMatches() {
+        return plan.matches(fingerprint1, fingerprint2);
+    }
+
+    @Benchmark
+    public ValueComparator<TestPack> chainRead() {
+        return chain(expression, TestPack::comparator);
+    }
+
+    @Benchmark
+    public ValueComparator<TestPack> planRead() {
+        return ValueComparator.read(expression, TestPack::comparator);
+    }
+}
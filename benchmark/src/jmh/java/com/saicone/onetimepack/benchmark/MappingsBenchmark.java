@@ -0,0 +1,110 @@
+package com.saicone.onetimepack.benchmark;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.saicone.onetimepack.module.Mappings;
+import com.saicone.onetimepack.util.ProtocolVersion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MappingsBenchmark {
+
+    // The bundled file has 3 packets, community files can map every packet of the game
+    @Param({"3", "200", "2000"})
+    public int packets;
+
+    @Param({"20"})
+    public int ranges;
+
+    private Path file;
+    private Mappings<int[]> mappings;
+
+    @Setup
+    public void setup() throws IOException {
+        TestPlatform.get().load("URL", "OVERRIDE");
+        file = Files.createTempFile("onetimepack-mappings", ".json");
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("{\n  \"external\": {\n    \"enabled\": false,\n    \"url\": \"\"\n  }");
+            for (String state : new String[] {"packet", "packet-configuration"}) {
+                writer.write(",\n  \"" + state + "\": {");
+                for (int packet = 0; packet < packets; packet++) {
+                    writer.write((packet == 0 ? "" : ",") + "\n    \"Packet" + packet + "\": {");
+                    for (int range = 0; range < ranges; range++) {
+                        final int start = 47 + range * 36;
+                        writer.write((range == 0 ? "" : ",") + "\n      \"" + start + " - " + (start + 35) + "\": " + (packet + range));
+                    }
+                    writer.write("\n    }");
+                }
+                writer.write("\n  }");
+            }
+            writer.write("\n}\n");
+        }
+        mappings = new Mappings<>(file.getParent().toFile(), file.getFileName().toString(), (start, end, id) -> new int[] {start, end, id});
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    // Mappings file as it was loaded before: joined lines, parsed json tree and then the tree walk
+    @Benchmark
+    public Object treeParse() throws IOException {
+        final String lines = String.join("", Files.readAllLines(file));
+        final JsonObject json = JsonParser.parseString(lines).getAsJsonObject();
+        final Map<String, Map<String, List<int[]>>> loaded = new HashMap<>();
+        for (String s : json.keySet()) {
+            final String key = s.trim().toLowerCase();
+            if (!key.startsWith("packet")) {
+                continue;
+            }
+            final String[] split = key.split("-", 2);
+            final String protocol = split.length > 1 ? split[1] : "play";
+            final JsonObject packets = json.getAsJsonObject(s);
+            for (String name : packets.keySet()) {
+                final JsonObject packet = packets.getAsJsonObject(name);
+                final List<int[]> list = new ArrayList<>();
+                for (String range : packet.keySet()) {
+                    for (String ver : range.split("\\|")) {
+                        final String[] version = ver.split("-");
+                        final int start = ProtocolVersion.getProtocol(version[0]);
+                        final int end = version.length >= 2 ? ProtocolVersion.getProtocol(version[1]) : start;
+                        list.add(new int[] {start, end, packet.get(range).getAsInt()});
+                    }
+                }
+                loaded.computeIfAbsent(name, __ -> new HashMap<>()).put(protocol, list);
+            }
+        }
+        return loaded;
+    }
+
+    @Benchmark
+    public Object streamParse() throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            mappings.load(reader);
+        }
+        return mappings;
+    }
+}
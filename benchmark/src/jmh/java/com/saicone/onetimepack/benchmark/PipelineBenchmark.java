@@ -0,0 +1,132 @@
+package com.saicone.onetimepack.benchmark;
+
+import com.saicone.onetimepack.core.PackResult;
+import com.saicone.onetimepack.core.ProtocolState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PipelineBenchmark {
+
+    private static final int MINECRAFT_1_20_2 = 764;
+    private static final int MINECRAFT_1_21 = 767;
+
+    @Param({"" + MINECRAFT_1_20_2, "" + MINECRAFT_1_21})
+    public int protocol;
+
+    @Param({"OVERRIDE", "STACK"})
+    public String behavior;
+
+    @Param({"1", "5", "10", "20"})
+    public int packs;
+
+    @Param({"!UUID OR !HASH OR URL", "UUID", "URL", "HASH", "PROMPT", "ALL", "ANY"})
+    public String comparator;
+
+    private TestProcessor processor;
+    private TestUser<TestPack> user;
+    private TestPack[] cached;
+    private TestPack[] fresh;
+    // Packs that are still cached after join, 1.20.2 clients and OVERRIDE behavior only keep the last one
+    private TestPack[] loaded;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final TestPlatform platform = TestPlatform.get();
+        platform.load(comparator, behavior);
+        processor = platform.getProcessor();
+        // Executor and await scheduler, like a running proxy
+        processor.enable();
+        user = platform.addUser(protocol, "lobby");
+
+        cached = new TestPack[packs];
+        fresh = new TestPack[packs];
+        for (int i = 0; i < packs; i++) {
+            cached[i] = pack(i);
+            fresh[i] = pack(packs + i);
+        }
+        join();
+        loaded = processor.getPacketUser(user.getUniqueId()).getPacks().values().toArray(new TestPack[0]);
+    }
+
+    // Every invocation starts from the same state, outside the measured time
+    @Setup(Level.Invocation)
+    public void reset() {
+        join();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        processor.disable();
+    }
+
+    private static TestPack pack(int i) {
+        return new TestPack(
+                new UUID(0x5A1C0E, i),
+                "https://packs.example.com/pack-" + i + ".zip",
+                String.format("%040x", i + 1),
+                "{\"text\":\"Resource pack #" + i + "\"}"
+        );
+    }
+
+    // Push every pack with its status, like a player that join the network
+    private void join() {
+        processor.clear(user.getUniqueId());
+        for (TestPack pack : cached) {
+            processor.push(user, ProtocolState.PLAY, pack);
+            processor.status(user, pack.uniqueId(), PackResult.SUCCESS_DOWNLOAD);
+        }
+    }
+
+    @Benchmark
+    public void serverSwitch(Blackhole blackhole) {
+        // The new server sends again the packs that the client has loaded, so all of them are duplicated
+        for (TestPack pack : loaded) {
+            blackhole.consume(processor.push(user, ProtocolState.PLAY, pack));
+        }
+    }
+
+    @Benchmark
+    public void firstJoin(Blackhole blackhole) {
+        processor.clear(user.getUniqueId());
+        for (TestPack pack : cached) {
+            blackhole.consume(processor.push(user, ProtocolState.PLAY, pack));
+            processor.status(user, pack.uniqueId(), PackResult.SUCCESS_DOWNLOAD);
+        }
+    }
+
+    @Benchmark
+    public void newPacks(Blackhole blackhole) {
+        // Push packs that are not cached yet
+        for (TestPack pack : fresh) {
+            blackhole.consume(processor.push(user, ProtocolState.PLAY, pack));
+        }
+    }
+
+    @Benchmark
+    public void popAndPush(Blackhole blackhole) {
+        final TestPack pack = cached[cached.length - 1];
+        blackhole.consume(processor.pop(user, ProtocolState.PLAY, pack.uniqueId()));
+        blackhole.consume(processor.push(user, ProtocolState.PLAY, pack));
+        processor.status(user, pack.uniqueId(), PackResult.SUCCESS_DOWNLOAD);
+    }
+
+    @Benchmark
+    public void status() {
+        processor.status(user, cached[0].uniqueId(), PackResult.SUCCESS_DOWNLOAD);
+    }
+}
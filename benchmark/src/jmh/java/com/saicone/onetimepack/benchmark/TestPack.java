@@ -0,0 +1,87 @@
+package com.saicone.onetimepack.benchmark;
+
+import com.saicone.onetimepack.core.PackHash;
+import com.saicone.onetimepack.util.ValueComparator;
+
+import java.util.Objects;
+import java.util.UUID;
+
+public class TestPack {
+
+    private final UUID uniqueId;
+    private final String url;
+    private final String hash;
+    private final String prompt;
+
+    public static ValueComparator<TestPack> comparator(String input) {
+        final boolean nonNull = input.charAt(0) == '!';
+        final ValueComparator<TestPack> comparator = switch ((nonNull ? input.substring(1) : input).toUpperCase()) {
+            case "UUID" -> TestPack::uniqueId;
+            case "URL" -> TestPack::url;
+            case "HASH" -> pack -> PackHash.of(pack.hash());
+            case "PROMPT" -> TestPack::prompt;
+            case "ALL" -> pack -> pack;
+            case "ANY" -> pack -> true;
+            default -> null;
+        };
+        if (comparator == null) {
+            return null;
+        }
+        return nonNull ? comparator.nonNull() : comparator;
+    }
+
+    public TestPack(UUID uniqueId, String url, String hash, String prompt) {
+        this.uniqueId = uniqueId;
+        this.url = url;
+        this.hash = hash;
+        this.prompt = prompt;
+    }
+
+    public UUID uniqueId() {
+        return uniqueId;
+    }
+
+    public String url() {
+        return url;
+    }
+
+    public String hash() {
+        return hash;
+    }
+
+    public String prompt() {
+        return prompt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        TestPack that = (TestPack) o;
+
+        if (!Objects.equals(uniqueId, that.uniqueId)) return false;
+        if (!Objects.equals(url, that.url)) return false;
+        if (!Objects.equals(hash, that.hash)) return false;
+        return Objects.equals(prompt, that.prompt);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = uniqueId != null ? uniqueId.hashCode() : 0;
+        result = 31 * result + (url != null ? url.hashCode() : 0);
+        result = 31 * result + (hash != null ? hash.hashCode() : 0);
+        result = 31 * result + (prompt != null ? prompt.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "TestPack{" +
+                "uniqueId=" + uniqueId +
+                ", url='" + url + '\'' +
+                ", hash='" + hash + '\'' +
+                ", prompt='" + prompt + '\'' +
+                '}';
+    }
+}
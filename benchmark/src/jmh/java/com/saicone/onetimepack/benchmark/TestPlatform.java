@@ -0,0 +1,93 @@
+package com.saicone.onetimepack.benchmark;
+
+import com.saicone.onetimepack.OneTimePack;
+import com.saicone.onetimepack.core.PacketUser;
+import com.saicone.onetimepack.module.TinyYaml;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class TestPlatform implements OneTimePack.Provider {
+
+    private static TestPlatform instance;
+
+    private final Map<UUID, PacketUser<?>> users = new ConcurrentHashMap<>();
+    private final TestProcessor processor = new TestProcessor();
+    private final File folder;
+
+    @NotNull
+    public static synchronized TestPlatform get() {
+        if (instance == null) {
+            instance = new TestPlatform();
+        }
+        return instance;
+    }
+
+    private TestPlatform() {
+        this.folder = new File(System.getProperty("java.io.tmpdir"), "onetimepack-benchmark");
+        new OneTimePack(this, processor);
+    }
+
+    @NotNull
+    public TestProcessor getProcessor() {
+        return processor;
+    }
+
+    @NotNull
+    public TestUser<TestPack> addUser(int protocolVersion, @NotNull String server) {
+        final TestUser<TestPack> user = new TestUser<>(UUID.randomUUID(), protocolVersion, server);
+        users.put(user.getUniqueId(), user);
+        return user;
+    }
+
+    public void load(@NotNull String comparator, @NotNull String behavior) {
+        final Map<String, Object> options = new LinkedHashMap<>();
+        options.put("enabled", true);
+        options.put("comparator", comparator);
+        options.put("default-status", "none");
+        options.put("behavior", behavior);
+        options.put("send", false);
+        options.put("remove", true);
+        options.put("clear", true);
+        options.put("min-protocol", -1);
+
+        final Map<String, Object> group = new LinkedHashMap<>();
+        group.put("servers", List.of("lobby"));
+
+        final Map<String, Object> data = new LinkedHashMap<>();
+        data.put("plugin", new LinkedHashMap<>(Map.of("log-level", 2)));
+        data.put("protocol", new LinkedHashMap<>(Map.of("default", options)));
+        data.put("group", new LinkedHashMap<>(Map.of("lobby", group)));
+        OneTimePack.SETTINGS = new TinyYaml("settings.yml", data);
+
+        processor.clear();
+        processor.reload();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public @NotNull <PackT> PacketUser<PackT> getUser(@NotNull UUID uniqueId) {
+        final PacketUser<?> user = users.get(uniqueId);
+        if (user == null) {
+            throw new IllegalArgumentException("The user " + uniqueId + " is not connected");
+        }
+        return (PacketUser<PackT>) user;
+    }
+
+    @Override
+    public @NotNull File getPluginFolder() {
+        return folder;
+    }
+
+    @Override
+    public void log(int level, @NotNull String s) {
+        if (level <= 1) {
+            System.err.println(s);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.saicone.onetimepack.benchmark;
+
+import com.saicone.onetimepack.core.PackHash;
+import com.saicone.onetimepack.core.PackResult;
+import com.saicone.onetimepack.core.Processor;
+import com.saicone.onetimepack.core.ProtocolState;
+import com.saicone.onetimepack.util.ValueComparator;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Optional;
+import java.util.UUID;
+
+// Processor without platform, packets are given directly by the benchmark
+public class TestProcessor extends Processor<TestUser<TestPack>, TestPack, ProtocolState> {
+
+    @Nullable
+    public Optional<PackResult> push(@NotNull TestUser<TestPack> user, @NotNull ProtocolState state, @NotNull TestPack packet) {
+        return onPackPush(user, state, packet, packet.uniqueId(), packet.hash());
+    }
+
+    public boolean pop(@NotNull TestUser<TestPack> user, @NotNull ProtocolState state, @Nullable UUID id) {
+        return onPackPop(user, state, id == null ? "clear" : id, id);
+    }
+
+    public void status(@NotNull TestUser<TestPack> user, @Nullable UUID id, @NotNull PackResult result) {
+        onPackStatus(user, id, result);
+    }
+
+    @Override
+    protected @NotNull UUID getUserId(@NotNull TestUser<TestPack> user) {
+        return user.getUniqueId();
+    }
+
+    @Override
+    protected @Nullable ValueComparator<TestPack> getPackValue(@NotNull String name) {
+        return switch (name) {
+            case "UUID" -> TestPack::uniqueId;
+            case "URL" -> TestPack::url;
+            case "HASH" -> pack -> PackHash.of(pack.hash());
+            case "PROMPT" -> TestPack::prompt;
+            case "ALL" -> pack -> pack;
+            case "ANY" -> pack -> true;
+            default -> null;
+        };
+    }
+
+    @Override
+    public void clearPackets(@NotNull TestUser<TestPack> user, @NotNull ProtocolState state) {
+        // empty method
+    }
+
+    @Override
+    protected @Nullable ProtocolState getState(@NotNull TestUser<TestPack> user) {
+        return user.getState();
+    }
+
+    @Override
+    public void sendResult(@NotNull TestUser<TestPack> user, @NotNull ProtocolState state, @NotNull TestPack packet, @NotNull PackResult result) {
+        user.setSentResult(result);
+    }
+}
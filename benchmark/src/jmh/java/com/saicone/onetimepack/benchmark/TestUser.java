@@ -0,0 +1,58 @@
+package com.saicone.onetimepack.benchmark;
+
+import com.saicone.onetimepack.core.PackResult;
+import com.saicone.onetimepack.core.PacketUser;
+import com.saicone.onetimepack.core.ProtocolState;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.UUID;
+
+public class TestUser<PackT> extends PacketUser<PackT> {
+
+    private final UUID uniqueId;
+    private final int protocolVersion;
+    private final String server;
+    // Protocol state and last status sent to the server, there is no real connection
+    private volatile ProtocolState state;
+    private volatile PackResult sentResult;
+
+    public TestUser(@NotNull UUID uniqueId, int protocolVersion, @Nullable String server) {
+        this.uniqueId = uniqueId;
+        this.protocolVersion = protocolVersion;
+        this.server = server;
+    }
+
+    @Override
+    public @NotNull UUID getUniqueId() {
+        return uniqueId;
+    }
+
+    @Override
+    public int getProtocolVersion() {
+        return protocolVersion;
+    }
+
+    @Override
+    public @Nullable String getServer() {
+        return server;
+    }
+
+    @Nullable
+    public ProtocolState getState() {
+        return state;
+    }
+
+    public void setState(@Nullable ProtocolState state) {
+        this.state = state;
+    }
+
+    @Nullable
+    public PackResult getSentResult() {
+        return sentResult;
+    }
+
+    public void setSentResult(@Nullable PackResult sentResult) {
+        this.sentResult = sentResult;
+    }
+}
@@ -5,6 +5,7 @@ import com.saicone.onetimepack.core.Processor;
 import com.saicone.onetimepack.module.TinySettings;
 import com.saicone.onetimepack.module.TinyYaml;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.util.UUID;
@@ -24,12 +25,41 @@ public class OneTimePack {
         return instance;
     }
 
+    public static boolean isLoggable(int level) {
+        return logLevel >= level;
+    }
+
     public static void log(int level, @NotNull String s) {
         if (logLevel >= level) {
             get().getProvider().log(level, s);
         }
     }
 
+    // Parameterized forms, the message is only built when the level is enabled
+    public static void log(int level, @NotNull String s, @Nullable Object arg) {
+        if (logLevel >= level) {
+            get().getProvider().log(level, format(s, arg));
+        }
+    }
+
+    public static void log(int level, @NotNull String s, @Nullable Object arg1, @Nullable Object arg2) {
+        if (logLevel >= level) {
+            get().getProvider().log(level, format(s, arg1, arg2));
+        }
+    }
+
+    public static void log(int level, @NotNull String s, @Nullable Object arg1, @Nullable Object arg2, @Nullable Object arg3) {
+        if (logLevel >= level) {
+            get().getProvider().log(level, format(s, arg1, arg2, arg3));
+        }
+    }
+
+    public static void log(int level, @NotNull String s, @Nullable Object... args) {
+        if (logLevel >= level) {
+            get().getProvider().log(level, format(s, args));
+        }
+    }
+
     public static void log(int level, @NotNull Supplier<String> msg) {
         if (logLevel >= level) {
             get().getProvider().log(level, msg.get());
@@ -49,6 +79,26 @@ public class OneTimePack {
         }
     }
 
+    public static void log(int level, @NotNull Throwable throwable, @NotNull String s, @Nullable Object... args) {
+        if (logLevel >= level) {
+            get().getProvider().log(level, format(s, args));
+            throwable.printStackTrace();
+        }
+    }
+
+    @NotNull
+    private static String format(@NotNull String s, @Nullable Object... args) {
+        final StringBuilder builder = new StringBuilder(s.length() + 32);
+        int start = 0;
+        int arg = 0;
+        int index;
+        while (arg < args.length && (index = s.indexOf("{}", start)) >= 0) {
+            builder.append(s, start, index).append(args[arg++]);
+            start = index + 2;
+        }
+        return builder.append(s, start, s.length()).toString();
+    }
+
     public OneTimePack(@NotNull Provider provider, @NotNull Processor<?, ?, ?> processor) {
         if (instance != null) {
             throw new RuntimeException(OneTimePack.class.getSimpleName() + " is already initialized");
@@ -0,0 +1,86 @@
+package com.saicone.onetimepack.core;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+
+public final class PackDescriptor {
+
+    // Every player receives the same few packs, so cached packets share a single descriptor
+    // Weak references are used to discard descriptors of packs that aren't cached anymore
+    private static final Interner<PackDescriptor> INTERNER = Interners.newWeakInterner();
+
+    public static final PackDescriptor EMPTY = of(null, null);
+
+    private final String url;
+    private final String hash;
+    private final int hashCode;
+    // Parsed on first use, it's the same for every user of this pack
+    private volatile PackHash packHash;
+
+    @NotNull
+    public static PackDescriptor of(@Nullable String url, @Nullable String hash) {
+        return INTERNER.intern(new PackDescriptor(url, hash));
+    }
+
+    private PackDescriptor(@Nullable String url, @Nullable String hash) {
+        this.url = url;
+        this.hash = hash;
+        this.hashCode = 31 * (url != null ? url.hashCode() : 0) + (hash != null ? hash.hashCode() : 0);
+    }
+
+    @Nullable
+    public String getUrl() {
+        return url;
+    }
+
+    @Nullable
+    public String getHash() {
+        return hash;
+    }
+
+    @Nullable
+    public PackHash getPackHash() {
+        PackHash packHash = this.packHash;
+        if (packHash == null && hash != null) {
+            packHash = PackHash.of(hash);
+            this.packHash = packHash;
+        }
+        return packHash;
+    }
+
+    @NotNull
+    public PackDescriptor withUrl(@Nullable String url) {
+        return Objects.equals(this.url, url) ? this : of(url, hash);
+    }
+
+    @NotNull
+    public PackDescriptor withHash(@Nullable String hash) {
+        return Objects.equals(this.hash, hash) ? this : of(url, hash);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        PackDescriptor that = (PackDescriptor) o;
+        return hashCode == that.hashCode && Objects.equals(url, that.url) && Objects.equals(hash, that.hash);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return "PackDescriptor{" +
+                "url='" + url + '\'' +
+                ", hash='" + hash + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,174 @@
+package com.saicone.onetimepack.core;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+public final class PackHash {
+
+    public static final int LENGTH = 20;
+    public static final int HEX_LENGTH = LENGTH * 2;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    // SHA-1 as 20 bytes
+    private final long first;
+    private final long second;
+    private final int third;
+    // Lowercase text of hashes that are not a valid SHA-1, so they are compared like before
+    private final String text;
+
+    @Nullable
+    public static PackHash of(@Nullable Object hash) {
+        if (hash == null) {
+            return null;
+        }
+        if (hash instanceof PackHash) {
+            return (PackHash) hash;
+        }
+        if (hash instanceof byte[]) {
+            return of((byte[]) hash);
+        }
+        return of(hash.toString());
+    }
+
+    @Nullable
+    public static PackHash of(@Nullable byte[] hash) {
+        if (hash == null) {
+            return null;
+        }
+        if (hash.length != LENGTH) {
+            final StringBuilder builder = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                builder.append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+            }
+            return new PackHash(0L, 0L, 0, builder.toString());
+        }
+        return new PackHash(bytesToLong(hash, 0), bytesToLong(hash, 8), (int) bytesToLong(hash, 16, 4), null);
+    }
+
+    @Nullable
+    public static PackHash of(@Nullable CharSequence hash) {
+        if (hash == null) {
+            return null;
+        }
+        if (isHex(hash)) {
+            return new PackHash(hexToLong(hash, 0, 16), hexToLong(hash, 16, 16), (int) hexToLong(hash, 32, 8), null);
+        }
+        final String text = hash.toString();
+        // Sent by some servers when the pack doesn't have any hash
+        if (text.equalsIgnoreCase("null")) {
+            return null;
+        }
+        return new PackHash(0L, 0L, 0, text.toLowerCase(Locale.ROOT));
+    }
+
+    private static long bytesToLong(@NotNull byte[] bytes, int offset) {
+        return bytesToLong(bytes, offset, 8);
+    }
+
+    private static long bytesToLong(@NotNull byte[] bytes, int offset, int length) {
+        long value = 0L;
+        for (int i = offset; i < offset + length; i++) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static boolean isHex(@NotNull CharSequence hash) {
+        if (hash.length() != HEX_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < HEX_LENGTH; i++) {
+            if (hexDigit(hash.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long hexToLong(@NotNull CharSequence hex, int offset, int length) {
+        long value = 0L;
+        for (int i = offset; i < offset + length; i++) {
+            value = (value << 4) | hexDigit(hex.charAt(i));
+        }
+        return value;
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    private PackHash(long first, long second, int third, @Nullable String text) {
+        this.first = first;
+        this.second = second;
+        this.third = third;
+        this.text = text;
+    }
+
+    public boolean isBinary() {
+        return text == null;
+    }
+
+    @NotNull
+    public byte[] toBytes() {
+        if (text != null) {
+            return text.getBytes(StandardCharsets.UTF_8);
+        }
+        final byte[] bytes = new byte[LENGTH];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (first >>> (56 - i * 8));
+            bytes[i + 8] = (byte) (second >>> (56 - i * 8));
+        }
+        for (int i = 0; i < 4; i++) {
+            bytes[i + 16] = (byte) (third >>> (24 - i * 8));
+        }
+        return bytes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        PackHash that = (PackHash) o;
+        if (text != null || that.text != null) {
+            return text != null && text.equals(that.text);
+        }
+        // Constant time comparison
+        return ((first ^ that.first) | (second ^ that.second) | (third ^ that.third)) == 0L;
+    }
+
+    @Override
+    public int hashCode() {
+        if (text != null) {
+            return text.hashCode();
+        }
+        return (int) (first ^ (first >>> 32)) * 31 + third;
+    }
+
+    @Override
+    public String toString() {
+        if (text != null) {
+            return text;
+        }
+        final char[] chars = new char[HEX_LENGTH];
+        for (int i = 0; i < 16; i++) {
+            chars[i] = HEX[(int) (first >>> (60 - i * 4)) & 0xF];
+            chars[i + 16] = HEX[(int) (second >>> (60 - i * 4)) & 0xF];
+        }
+        for (int i = 0; i < 8; i++) {
+            chars[i + 32] = HEX[(third >>> (28 - i * 4)) & 0xF];
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,146 @@
+package com.saicone.onetimepack.core;
+
+import com.saicone.onetimepack.util.ValueComparator;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+public class PackIndex<PackT> {
+
+    private final ValueComparator<PackT> comparator;
+    private final int[] keys;
+    private final Map<UUID, Entry> entries;
+    private final Map<Object, List<UUID>>[] buckets;
+
+    @NotNull
+    public static <T> PackIndex<T> of(@NotNull ValueComparator<T> comparator, @NotNull Map<UUID, T> packs) {
+        final Map<UUID, Entry> entries = new LinkedHashMap<>();
+        int order = 0;
+        for (Map.Entry<UUID, T> entry : packs.entrySet()) {
+            entries.put(entry.getKey(), new Entry(order++, comparator.extract(entry.getValue())));
+        }
+        return new PackIndex<>(comparator, keys(comparator), entries);
+    }
+
+    @NotNull
+    private static int[] keys(@NotNull ValueComparator<?> comparator) {
+        final Set<Integer> set = new LinkedHashSet<>();
+        comparator.collectKeys(0, set);
+        final int[] keys = new int[set.size()];
+        int i = 0;
+        for (Integer key : set) {
+            keys[i++] = key;
+        }
+        return keys;
+    }
+
+    @SuppressWarnings("unchecked")
+    PackIndex(@NotNull ValueComparator<PackT> comparator, int[] keys, @NotNull Map<UUID, Entry> entries) {
+        this.comparator = comparator;
+        this.keys = keys;
+        this.entries = Collections.unmodifiableMap(entries);
+        this.buckets = (Map<Object, List<UUID>>[]) new Map<?, ?>[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            final Map<Object, List<UUID>> bucket = new HashMap<>();
+            for (Map.Entry<UUID, Entry> entry : entries.entrySet()) {
+                bucket.computeIfAbsent(entry.getValue().getValues()[keys[i]], __ -> new ArrayList<>(1)).add(entry.getKey());
+            }
+            this.buckets[i] = bucket;
+        }
+    }
+
+    @NotNull
+    public ValueComparator<PackT> getComparator() {
+        return comparator;
+    }
+
+    @NotNull
+    public Map<UUID, Entry> getEntries() {
+        return entries;
+    }
+
+    @Nullable
+    public Object[] getFingerprint(@NotNull UUID id) {
+        final Entry entry = entries.get(id);
+        return entry == null ? null : entry.getValues();
+    }
+
+    @Nullable
+    public UUID find(@NotNull PackT packet) {
+        return find(comparator.extract(packet));
+    }
+
+    @Nullable
+    public UUID find(@NotNull Object[] fingerprint) {
+        UUID found = null;
+        int foundOrder = Integer.MAX_VALUE;
+        for (int i = 0; i < keys.length; i++) {
+            final List<UUID> candidates = buckets[i].get(fingerprint[keys[i]]);
+            if (candidates == null) {
+                continue;
+            }
+            for (UUID id : candidates) {
+                final Entry entry = entries.get(id);
+                // Keep the first inserted pack, like a linear scan would do
+                if (entry.getOrder() < foundOrder && comparator.matches(entry.getValues(), fingerprint)) {
+                    found = id;
+                    foundOrder = entry.getOrder();
+                }
+            }
+        }
+        return found;
+    }
+
+    @NotNull
+    public PackIndex<PackT> with(@NotNull UUID id, @NotNull Object[] fingerprint) {
+        final Map<UUID, Entry> entries = new LinkedHashMap<>(this.entries);
+        final Entry previous = entries.get(id);
+        int order = previous != null ? previous.getOrder() : 0;
+        if (previous == null) {
+            for (Entry entry : entries.values()) {
+                order = Math.max(order, entry.getOrder() + 1);
+            }
+        }
+        entries.put(id, new Entry(order, fingerprint));
+        return new PackIndex<>(comparator, keys, entries);
+    }
+
+    @NotNull
+    public PackIndex<PackT> without(@NotNull UUID id) {
+        if (!entries.containsKey(id)) {
+            return this;
+        }
+        final Map<UUID, Entry> entries = new LinkedHashMap<>(this.entries);
+        entries.remove(id);
+        return new PackIndex<>(comparator, keys, entries);
+    }
+
+    public static final class Entry {
+
+        private final int order;
+        private final Object[] values;
+
+        public Entry(int order, @NotNull Object[] values) {
+            this.order = order;
+            this.values = values;
+        }
+
+        public int getOrder() {
+            return order;
+        }
+
+        @NotNull
+        public Object[] getValues() {
+            return values;
+        }
+    }
+}
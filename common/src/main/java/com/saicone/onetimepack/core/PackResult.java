@@ -31,6 +31,11 @@ public enum PackResult {
         return fallback;
     }
 
+    // The client is still working on the pack, a final status will be sent later
+    public boolean isPending() {
+        return this == ACCEPTED || this == DOWNLOADED;
+    }
+
     @NotNull
     public static <E extends Enum<E>> PackResult from(@NotNull E value) {
         return from(value, SUCCESS_DOWNLOAD);
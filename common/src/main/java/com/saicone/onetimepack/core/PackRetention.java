@@ -0,0 +1,159 @@
+package com.saicone.onetimepack.core;
+
+import com.saicone.onetimepack.OneTimePack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PackRetention<PackT> {
+
+    private final long time;
+    private final int maxSize;
+
+    private final Map<UUID, Retained<PackT>> retained = new ConcurrentHashMap<>();
+    // Every entry has the same retention time, so insertion order is also expiration order
+    private final Queue<Retained<PackT>> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    private ScheduledExecutorService sweeper;
+
+    public PackRetention(long time, int maxSize) {
+        this.time = time;
+        this.maxSize = maxSize;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public void start() {
+        final long period = Math.max(1000L, Math.min(time, 5000L));
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "OneTimePack Retention");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleAtFixedRate(this::sweep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+        retained.clear();
+        queue.clear();
+        size.set(0);
+    }
+
+    public void put(@NotNull UUID uniqueId, int protocolVersion, @NotNull Map<UUID, PackT> packs, @NotNull Map<UUID, PackResult> results) {
+        if (packs.isEmpty()) {
+            return;
+        }
+        final Retained<PackT> entry = new Retained<>(uniqueId, protocolVersion, packs, results, System.currentTimeMillis() + time);
+        final Retained<PackT> previous = retained.put(uniqueId, entry);
+        if (previous == null) {
+            size.incrementAndGet();
+        }
+        queue.add(entry);
+        // Hard cap, the oldest entries are dropped first
+        while (size.get() > maxSize) {
+            final Retained<PackT> oldest = queue.poll();
+            if (oldest == null) {
+                break;
+            }
+            remove(oldest);
+        }
+    }
+
+    @Nullable
+    public Retained<PackT> take(@NotNull UUID uniqueId) {
+        final Retained<PackT> entry = retained.remove(uniqueId);
+        if (entry == null) {
+            return null;
+        }
+        size.decrementAndGet();
+        // The queue node is discarded by the sweeper
+        return entry.isExpired(System.currentTimeMillis()) ? null : entry;
+    }
+
+    public void sweep() {
+        final long now = System.currentTimeMillis();
+        Retained<PackT> entry;
+        while ((entry = queue.peek()) != null && (entry.isExpired(now) || retained.get(entry.uniqueId) != entry)) {
+            if (queue.remove(entry) && remove(entry)) {
+                OneTimePack.log(4, "The retained packs from user {} has expired", entry.uniqueId);
+            }
+        }
+    }
+
+    private boolean remove(@NotNull Retained<PackT> entry) {
+        // Remove only if it's not replaced by a newer disconnection
+        if (retained.remove(entry.uniqueId, entry)) {
+            size.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    public static final class Retained<PackT> {
+
+        private final UUID uniqueId;
+        private final int protocolVersion;
+        private final Map<UUID, PackT> packs;
+        private final Map<UUID, PackResult> results;
+        private final long expiration;
+
+        Retained(@NotNull UUID uniqueId, int protocolVersion, @NotNull Map<UUID, PackT> packs, @NotNull Map<UUID, PackResult> results, long expiration) {
+            this.uniqueId = uniqueId;
+            this.protocolVersion = protocolVersion;
+            this.packs = packs;
+            this.results = results;
+            this.expiration = expiration;
+        }
+
+        @NotNull
+        public UUID getUniqueId() {
+            return uniqueId;
+        }
+
+        public int getProtocolVersion() {
+            return protocolVersion;
+        }
+
+        @NotNull
+        public Map<UUID, PackT> getPacks() {
+            return packs;
+        }
+
+        @NotNull
+        public Map<UUID, PackResult> getResults() {
+            return results;
+        }
+
+        public long getExpiration() {
+            return expiration;
+        }
+
+        public boolean isExpired(long now) {
+            return now >= expiration;
+        }
+    }
+}
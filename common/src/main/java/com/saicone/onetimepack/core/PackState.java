@@ -0,0 +1,245 @@
+package com.saicone.onetimepack.core;
+
+import com.saicone.onetimepack.util.ComparatorPlan;
+import com.saicone.onetimepack.util.ValueComparator;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public class PackState {
+
+    // Entries are written with a short count, the oldest ones are dropped on save
+    public static final int MAX_ENTRIES = 64;
+
+    private final UUID uniqueId;
+    private final long time;
+    private final List<Entry> entries;
+
+    @NotNull
+    public static PackState read(@NotNull DataInput in) throws IOException {
+        final UUID uniqueId = readUniqueId(in);
+        final long time = in.readLong();
+        final int size = in.readShort();
+        final List<Entry> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            final UUID id = in.readBoolean() ? readUniqueId(in) : null;
+            final PackResult result = PackResult.of(in.readByte());
+            final long entryTime = in.readLong();
+            final int count = in.readShort();
+            final Map<String, String> values = new HashMap<>();
+            for (int j = 0; j < count; j++) {
+                final String name = readString(in);
+                values.put(name, in.readBoolean() ? readString(in) : null);
+            }
+            entries.add(new Entry(id, values, result, entryTime));
+        }
+        return new PackState(uniqueId, time, entries);
+    }
+
+    @NotNull
+    public static UUID readUniqueId(@NotNull DataInput in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    public static void writeUniqueId(@NotNull DataOutput out, @NotNull UUID uniqueId) throws IOException {
+        out.writeLong(uniqueId.getMostSignificantBits());
+        out.writeLong(uniqueId.getLeastSignificantBits());
+    }
+
+    @NotNull
+    private static String readString(@NotNull DataInput in) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(@NotNull DataOutput out, @NotNull String s) throws IOException {
+        final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public PackState(@NotNull UUID uniqueId, long time, @NotNull List<Entry> entries) {
+        this.uniqueId = uniqueId;
+        this.time = time;
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    @NotNull
+    public UUID getUniqueId() {
+        return uniqueId;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    @NotNull
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    @Nullable
+    public Entry find(@NotNull ValueComparator<?> comparator, @NotNull Object[] fingerprint) {
+        // Saved values are plain strings, so only named comparators can be matched
+        if (!(comparator instanceof ComparatorPlan)) {
+            return null;
+        }
+        final String[] names = ((ComparatorPlan<?>) comparator).getNames();
+        final Object[] values = new Object[names.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = fingerprint[i] == null ? null : String.valueOf(fingerprint[i]);
+        }
+        final Object[] saved = new Object[names.length];
+        for (Entry entry : entries) {
+            if (entry.fill(names, saved) && comparator.matches(saved, values)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    public boolean isExpired(long ttl) {
+        if (ttl <= 0) {
+            return false;
+        }
+        final long now = System.currentTimeMillis();
+        if (entries.isEmpty()) {
+            return now - time > ttl;
+        }
+        for (Entry entry : entries) {
+            if (!entry.isExpired(now, ttl)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Nullable
+    public PackState expire(long ttl) {
+        if (ttl <= 0) {
+            return this;
+        }
+        final long now = System.currentTimeMillis();
+        List<Entry> entries = null;
+        for (int i = 0; i < this.entries.size(); i++) {
+            final Entry entry = this.entries.get(i);
+            if (entry.isExpired(now, ttl)) {
+                if (entries == null) {
+                    entries = new ArrayList<>(this.entries.subList(0, i));
+                }
+            } else if (entries != null) {
+                entries.add(entry);
+            }
+        }
+        if (entries == null) {
+            return isExpired(ttl) ? null : this;
+        }
+        return entries.isEmpty() ? null : new PackState(uniqueId, time, entries);
+    }
+
+    public void write(@NotNull DataOutput out) throws IOException {
+        writeUniqueId(out, uniqueId);
+        out.writeLong(time);
+        final int size = Math.min(entries.size(), MAX_ENTRIES);
+        out.writeShort(size);
+        for (int i = 0; i < size; i++) {
+            final Entry entry = entries.get(i);
+            out.writeBoolean(entry.id != null);
+            if (entry.id != null) {
+                writeUniqueId(out, entry.id);
+            }
+            out.writeByte(entry.result.ordinal());
+            out.writeLong(entry.time);
+            out.writeShort(entry.values.size());
+            for (Map.Entry<String, String> value : entry.values.entrySet()) {
+                writeString(out, value.getKey());
+                out.writeBoolean(value.getValue() != null);
+                if (value.getValue() != null) {
+                    writeString(out, value.getValue());
+                }
+            }
+        }
+    }
+
+    @NotNull
+    public PackState without(@NotNull Entry entry) {
+        final List<Entry> entries = new ArrayList<>(this.entries);
+        entries.remove(entry);
+        return new PackState(uniqueId, time, entries);
+    }
+
+    public static final class Entry {
+
+        private final UUID id;
+        private final Map<String, String> values;
+        private final PackResult result;
+        // Time of the session that received the pack, carried-over entries keep it
+        private final long time;
+
+        public Entry(@Nullable UUID id, @NotNull Map<String, String> values, @NotNull PackResult result, long time) {
+            this.id = id;
+            this.values = values;
+            this.result = result;
+            this.time = time;
+        }
+
+        @Nullable
+        public UUID getId() {
+            return id;
+        }
+
+        @NotNull
+        public Map<String, String> getValues() {
+            return values;
+        }
+
+        @NotNull
+        public PackResult getResult() {
+            return result;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public boolean isExpired(long now, long ttl) {
+            return ttl > 0 && now - time > ttl;
+        }
+
+        public boolean matches(@NotNull ValueComparator<?> comparator, @NotNull Entry entry) {
+            if (!(comparator instanceof ComparatorPlan)) {
+                return false;
+            }
+            final String[] names = ((ComparatorPlan<?>) comparator).getNames();
+            final Object[] values = new Object[names.length];
+            final Object[] other = new Object[names.length];
+            return fill(names, values) && entry.fill(names, other) && comparator.matches(values, other);
+        }
+
+        private boolean fill(@NotNull String[] names, @NotNull Object[] saved) {
+            for (int i = 0; i < names.length; i++) {
+                // Not saved at all (instead of saved as null), the comparator was changed after save
+                if (!values.containsKey(names[i])) {
+                    return false;
+                }
+                saved[i] = values.get(names[i]);
+            }
+            return true;
+        }
+    }
+}
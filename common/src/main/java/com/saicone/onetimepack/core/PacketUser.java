@@ -1,27 +1,57 @@
 package com.saicone.onetimepack.core;
 
-import com.google.common.base.Suppliers;
+import com.saicone.onetimepack.util.ArrayMap;
+import com.saicone.onetimepack.util.ValueComparator;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.UUID;
-import java.util.function.Supplier;
+import java.util.concurrent.CompletableFuture;
 
 public abstract class PacketUser<PackT> {
 
     private static final UUID DUMMY_ID = new UUID(0, 0);
     private static final int MINECRAFT_1_20_3 = 765;
 
-    private final transient Supplier<Boolean> uniquePack = Suppliers.memoize(() -> getProtocolVersion() < MINECRAFT_1_20_3);
+    private static final byte UNKNOWN = 0;
+    private static final byte UNIQUE = 1;
+    private static final byte MULTIPLE = 2;
 
-    private final Map<UUID, PackT> cachedPacks = new LinkedHashMap<>();
-    private final Map<UUID, PackResult> cachedResults = new HashMap<>();
+    // Resolved on first use, since the protocol version is provided by the subclass
+    private transient volatile byte packMode = UNKNOWN;
+
+    // Copy-on-write snapshots: packs are pushed from downstream thread while results come from upstream thread,
+    // so every write is serialized by the user lock and readers just take the current (unmodifiable) snapshot.
+    // A single slot map is used by -1.20.2 clients, and an array map with the few packs of +1.20.3 clients
+    private volatile Map<UUID, PackT> cachedPacks = Map.of();
+    private volatile Map<UUID, PackResult> cachedResults = Map.of();
+
+    // Fingerprint index of cached packs, built for the last used comparator and updated with every pack write.
+    // It's not used by -1.20.2 clients, the fingerprint of the single cached pack is kept instead
+    private transient volatile PackIndex<PackT> packIndex;
+    private transient volatile Lookup<PackT> packLookup;
+    private transient volatile Lookup<PackT> lastLookup;
+
+    // Pack state saved from a previous session, consumed while the same packs are received again
+    private transient volatile PackState savedState;
+    // Guarded by this, true once the saved state was set, so a late prefetch doesn't replace it
+    private transient boolean savedStateSet;
+
+    // Options of the last known server, resolved again when the server or the configuration is changed
+    private transient volatile ResolvedOptions<PackT> resolvedOptions;
+    // Nano time of the last pack sent to the client, only used by metrics
+    private transient volatile long pushTime;
+    // Duplicated packs waiting for the final status of a pending pack, completed by the result of the same pack
+    private transient volatile Map<UUID, CompletableFuture<PackResult>> awaiting = Map.of();
 
     public boolean isUniquePack() {
-        return uniquePack.get();
+        byte mode = packMode;
+        if (mode == UNKNOWN) {
+            mode = getProtocolVersion() < MINECRAFT_1_20_3 ? UNIQUE : MULTIPLE;
+            packMode = mode;
+        }
+        return mode == UNIQUE;
     }
 
     @NotNull
@@ -32,15 +62,27 @@ public abstract class PacketUser<PackT> {
     @Nullable
     public abstract String getServer();
 
+    @NotNull
+    public ResolvedOptions<PackT> getOptions(@NotNull ProcessorConfig<PackT> config) {
+        final String server = getServer();
+        ResolvedOptions<PackT> options = resolvedOptions;
+        if (options == null || !options.isValid(config, server)) {
+            options = config.resolve(server);
+            resolvedOptions = options;
+        }
+        return options;
+    }
+
     @Nullable
     public PackT getPack() {
-        if (cachedPacks.isEmpty()) {
+        final Map<UUID, PackT> packs = cachedPacks;
+        if (packs.isEmpty()) {
             return null;
         }
         if (isUniquePack()) {
-            return cachedPacks.get(DUMMY_ID);
+            return packs.get(DUMMY_ID);
         }
-        return cachedPacks.entrySet().iterator().next().getValue();
+        return packs.values().iterator().next();
     }
 
     @NotNull
@@ -50,13 +92,14 @@ public abstract class PacketUser<PackT> {
 
     @Nullable
     public PackResult getResult() {
-        if (cachedResults.isEmpty()) {
+        final Map<UUID, PackResult> results = cachedResults;
+        if (results.isEmpty()) {
             return null;
         }
         if (isUniquePack()) {
-            return cachedResults.get(DUMMY_ID);
+            return results.get(DUMMY_ID);
         }
-        return cachedResults.entrySet().iterator().next().getValue();
+        return results.values().iterator().next();
     }
 
     @Nullable
@@ -64,7 +107,7 @@ public abstract class PacketUser<PackT> {
         if (isUniquePack()) {
             return cachedResults.get(DUMMY_ID);
         }
-        return cachedResults.get(uniqueId);
+        return uniqueId == null ? null : cachedResults.get(uniqueId);
     }
 
     @Nullable
@@ -79,60 +122,269 @@ public abstract class PacketUser<PackT> {
 
     @Nullable
     public UUID contains(@NotNull PackT packet, @NotNull ProtocolOptions<PackT> options) {
-        for (Map.Entry<UUID, PackT> entry : cachedPacks.entrySet()) {
-            if (options.getComparator().matches(entry.getValue(), packet)) {
-                return entry.getKey();
+        final ValueComparator<PackT> comparator = options.getComparator();
+        final Object[] fingerprint = comparator.extract(packet);
+        // Save the fingerprint, so it can be reused if the packet is cached
+        lastLookup = new Lookup<>(packet, comparator, fingerprint);
+        if (isUniquePack()) {
+            final PackT cached = cachedPacks.get(DUMMY_ID);
+            return cached != null && comparator.matches(getFingerprint(cached, comparator), fingerprint) ? DUMMY_ID : null;
+        }
+        return getIndex(comparator).find(fingerprint);
+    }
+
+    @NotNull
+    private Object[] getFingerprint(@NotNull PackT cached, @NotNull ValueComparator<PackT> comparator) {
+        Lookup<PackT> lookup = packLookup;
+        // Only extracted again when the comparator is changed (reload, server group, protocol state)
+        if (lookup == null || lookup.packet != cached || lookup.comparator != comparator) {
+            lookup = new Lookup<>(cached, comparator, comparator.extract(cached));
+            packLookup = lookup;
+        }
+        return lookup.fingerprint;
+    }
+
+    @NotNull
+    public PackIndex<PackT> getIndex(@NotNull ValueComparator<PackT> comparator) {
+        PackIndex<PackT> index = packIndex;
+        if (index == null || index.getComparator() != comparator) {
+            // Only happens on first lookup or when the comparator is changed (reload, server group, protocol state)
+            synchronized (this) {
+                index = packIndex;
+                if (index == null || index.getComparator() != comparator) {
+                    index = PackIndex.of(comparator, cachedPacks);
+                    packIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    public long getPushTime() {
+        return pushTime;
+    }
+
+    public void setPushTime(long pushTime) {
+        this.pushTime = pushTime;
+    }
+
+    @NotNull
+    public CompletableFuture<PackResult> await(@Nullable UUID id) {
+        final UUID key = id == null || isUniquePack() ? DUMMY_ID : id;
+        synchronized (this) {
+            // The status may be received between the pack lookup and this call
+            final PackResult result = cachedResults.get(key);
+            if (result != null && !result.isPending()) {
+                return CompletableFuture.completedFuture(result);
+            }
+            CompletableFuture<PackResult> future = awaiting.get(key);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                awaiting = with(awaiting, key, future);
+            }
+            return future;
+        }
+    }
+
+    public boolean release(@Nullable UUID id, @NotNull CompletableFuture<PackResult> future) {
+        final UUID key = id == null || isUniquePack() ? DUMMY_ID : id;
+        synchronized (this) {
+            if (awaiting.get(key) != future) {
+                return false;
+            }
+            awaiting = without(awaiting, key);
+        }
+        return true;
+    }
+
+    public void cancelAwaiting() {
+        final Map<UUID, CompletableFuture<PackResult>> futures;
+        synchronized (this) {
+            futures = awaiting;
+            awaiting = Map.of();
+        }
+        for (CompletableFuture<PackResult> future : futures.values()) {
+            future.cancel(false);
+        }
+    }
+
+    @Nullable
+    public PackState getSavedState() {
+        return savedState;
+    }
+
+    public synchronized void setSavedState(@Nullable PackState savedState) {
+        this.savedState = savedState;
+        this.savedStateSet = true;
+    }
+
+    public synchronized boolean setSavedStateIfAbsent(@Nullable PackState savedState) {
+        if (savedStateSet) {
+            return false;
+        }
+        this.savedState = savedState;
+        this.savedStateSet = true;
+        return true;
+    }
+
+    @Nullable
+    public PackState.Entry restore(@NotNull PackT packet, @NotNull ValueComparator<PackT> comparator) {
+        final PackState state = savedState;
+        if (state == null) {
+            return null;
+        }
+        final PackState.Entry entry = state.find(comparator, fingerprint(packet, comparator));
+        if (entry != null) {
+            synchronized (this) {
+                if (savedState == state) {
+                    savedState = state.getEntries().size() > 1 ? state.without(entry) : null;
+                }
             }
         }
-        return null;
+        return entry;
+    }
+
+    @NotNull
+    private Object[] fingerprint(@NotNull PackT packet, @NotNull ValueComparator<PackT> comparator) {
+        final Lookup<PackT> lookup = lastLookup;
+        if (lookup != null && lookup.packet == packet && lookup.comparator == comparator) {
+            return lookup.fingerprint;
+        }
+        return comparator.extract(packet);
+    }
+
+    @NotNull
+    private <V> Map<UUID, V> with(@NotNull Map<UUID, V> map, @NotNull UUID key, @NotNull V value) {
+        if (isUniquePack()) {
+            return Map.of(DUMMY_ID, value);
+        }
+        return ArrayMap.copyOf(map).with(key, value);
+    }
+
+    @NotNull
+    private <V> Map<UUID, V> without(@NotNull Map<UUID, V> map, @NotNull UUID key) {
+        if (isUniquePack()) {
+            return Map.of();
+        }
+        return ArrayMap.copyOf(map).without(key);
+    }
+
+    @NotNull
+    private <V> Map<UUID, V> withAll(@NotNull Map<UUID, V> map, @NotNull Map<UUID, V> values) {
+        if (values.isEmpty()) {
+            return map;
+        }
+        if (isUniquePack()) {
+            // Only the last pack is kept, like every push does
+            V last = null;
+            for (V value : values.values()) {
+                last = value;
+            }
+            return Map.of(DUMMY_ID, last);
+        }
+        return ArrayMap.copyOf(map).withAll(values);
     }
 
     public void putPack(@Nullable UUID id, @NotNull PackT packet) {
-        if (id == null || isUniquePack()) {
-            cachedPacks.put(DUMMY_ID, packet);
-        } else {
-            cachedPacks.put(id, packet);
+        final UUID key = id == null || isUniquePack() ? DUMMY_ID : id;
+        final PackIndex<PackT> index = packIndex;
+        final Object[] fingerprint = index == null ? null : fingerprint(packet, index.getComparator());
+        synchronized (this) {
+            cachedPacks = with(cachedPacks, key, packet);
+            if (isUniquePack()) {
+                // The status of the replaced pack doesn't belong to the new one
+                cachedResults = Map.of();
+                // The fingerprint from the lookup of the same packet is reused
+                final Lookup<PackT> lookup = lastLookup;
+                packLookup = lookup != null && lookup.packet == packet ? lookup : null;
+            }
+            if (packIndex != null) {
+                packIndex = fingerprint != null && packIndex == index ? index.with(key, fingerprint) : null;
+            }
         }
+        lastLookup = null;
     }
 
     public <E extends Enum<E>> void putResult(@Nullable UUID id, @NotNull E result) {
-        if (id == null || isUniquePack()) {
-            cachedResults.put(DUMMY_ID, PackResult.from(result));
-        } else {
-            cachedResults.put(id, PackResult.from(result));
-        }
+        putResult(id, PackResult.from(result));
     }
 
     public void putResult(@Nullable UUID id, @NotNull PackResult result) {
-        if (id == null || isUniquePack()) {
-            cachedResults.put(DUMMY_ID, result);
-        } else {
-            cachedResults.put(id, result);
+        final UUID key = id == null || isUniquePack() ? DUMMY_ID : id;
+        CompletableFuture<PackResult> future = null;
+        synchronized (this) {
+            cachedResults = with(cachedResults, key, result);
+            if (!result.isPending() && !awaiting.isEmpty()) {
+                future = awaiting.get(key);
+                if (future != null) {
+                    awaiting = without(awaiting, key);
+                }
+            }
+        }
+        // Outside the lock, since duplicated packs are answered by the completion
+        if (future != null) {
+            future.complete(result);
+        }
+    }
+
+    public void putAll(@NotNull Map<UUID, PackT> packs, @NotNull Map<UUID, PackResult> results) {
+        synchronized (this) {
+            cachedPacks = withAll(cachedPacks, packs);
+            cachedResults = withAll(cachedResults, results);
+            packIndex = null;
         }
     }
 
     public void removePack() {
-        cachedPacks.clear();
+        synchronized (this) {
+            cachedPacks = Map.of();
+            packIndex = null;
+            packLookup = null;
+        }
     }
 
     public void removePack(@Nullable UUID id) {
-        if (id == null || isUniquePack()) {
-            cachedPacks.remove(DUMMY_ID);
-        } else {
-            cachedPacks.remove(id);
+        final UUID key = id == null || isUniquePack() ? DUMMY_ID : id;
+        synchronized (this) {
+            if (!cachedPacks.containsKey(key)) {
+                return;
+            }
+            cachedPacks = isUniquePack() ? Map.of() : ArrayMap.copyOf(cachedPacks).without(key);
+            packLookup = null;
+            if (packIndex != null) {
+                packIndex = packIndex.without(key);
+            }
         }
     }
 
     public void handleResult(@Nullable UUID id) {
         if (id == null || isUniquePack()) {
-            cachedPacks.clear();
+            removePack();
         } else {
-            cachedPacks.remove(id);
+            removePack(id);
         }
     }
 
     public void clear() {
-        cachedPacks.clear();
-        cachedResults.clear();
+        synchronized (this) {
+            cachedPacks = Map.of();
+            cachedResults = Map.of();
+            packIndex = null;
+            packLookup = null;
+        }
+        lastLookup = null;
+    }
+
+    private static final class Lookup<PackT> {
+
+        private final PackT packet;
+        private final ValueComparator<PackT> comparator;
+        private final Object[] fingerprint;
+
+        private Lookup(@NotNull PackT packet, @NotNull ValueComparator<PackT> comparator, @NotNull Object[] fingerprint) {
+            this.packet = packet;
+            this.comparator = comparator;
+            this.fingerprint = fingerprint;
+        }
     }
 }
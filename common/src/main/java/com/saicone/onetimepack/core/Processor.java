@@ -1,28 +1,67 @@
 package com.saicone.onetimepack.core;
 
 import com.saicone.onetimepack.OneTimePack;
+import com.saicone.onetimepack.module.metrics.HandlerTimings;
+import com.saicone.onetimepack.module.metrics.MetricsServer;
+import com.saicone.onetimepack.module.metrics.PackMetrics;
+import com.saicone.onetimepack.module.store.FileStateStore;
+import com.saicone.onetimepack.module.store.HttpStateStore;
+import com.saicone.onetimepack.module.store.MemoryStateStore;
+import com.saicone.onetimepack.module.store.PackStateStore;
+import com.saicone.onetimepack.module.store.StateWriter;
+import com.saicone.onetimepack.util.BoundedExecutor;
+import com.saicone.onetimepack.util.ComparatorPlan;
+import com.saicone.onetimepack.util.FileUtils;
 import com.saicone.onetimepack.util.ValueComparator;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public abstract class Processor<UserT, PackT, StateT extends Enum<StateT>> implements ValueComparator.Provider<PackT> {
 
-    private final Map<ProtocolState, ProtocolOptions<PackT>> protocols = new HashMap<>();
-    private final Map<String, ServerGroup<PackT>> groups = new HashMap<>();
+    // Protocols that can receive packs, their comparators decide which saved entries were received again
+    private static final ProtocolState[] PACK_STATES = { ProtocolState.CONFIGURATION, ProtocolState.PLAY };
 
-    private boolean sendCached1_20_2 = false;
-    private boolean sendInvalid = false;
+    // Replaced as a whole on reload, so packet threads never see a half loaded configuration
+    private volatile ProcessorConfig<PackT> config = ProcessorConfig.empty();
 
     private transient int invalidCounter = 0;
 
-    private final Map<UUID, PacketUser<PackT>> users = new HashMap<>();
+    // Shared executor for tasks that cannot run on packet thread
+    private volatile BoundedExecutor executor;
+    // Timeouts and answers of duplicated packs waiting for a status, not limited by the shared executor capacity
+    private volatile ScheduledExecutorService scheduler;
+
+    private volatile PackRetention<PackT> retention;
+    private volatile StateWriter storage;
+    private volatile Map<String, ValueComparator<PackT>> storageValues = Map.of();
+    private volatile Set<PackResult> storageReplay = Set.of();
+
+    // Pack traffic counters, kept between reloads while metrics are enabled
+    private volatile PackMetrics metrics;
+    // Handler timings, null while disabled, so the only cost is a volatile read
+    private volatile HandlerTimings timings;
+    private MetricsServer metricsServer;
+
+    // Accessed from multiple event loops at the same time, so must be a concurrent map
+    private final Map<UUID, PacketUser<PackT>> users = new ConcurrentHashMap<>();
 
     public void onLoad() {
         // empty default method
@@ -42,83 +81,222 @@ public abstract class Processor<UserT, PackT, StateT extends Enum<StateT>> imple
     }
 
     public void enable() {
+        executor = BoundedExecutor.of(
+                "OneTimePack Worker",
+                OneTimePack.SETTINGS.getInt("plugin.executor.threads", 2),
+                OneTimePack.SETTINGS.getInt("plugin.executor.capacity", 1000)
+        );
+        OneTimePack.log(4, "Using executor {}", executor);
+        final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            final Thread thread = new Thread(r, "OneTimePack Await");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Timeouts are cancelled when the status arrives first, so they must not stay on the queue
+        scheduler.setRemoveOnCancelPolicy(true);
+        this.scheduler = scheduler;
         onEnable();
     }
 
     public void disable() {
         onDisable();
-        protocols.clear();
-        groups.clear();
+        if (executor != null) {
+            executor.shutdown(5000L);
+            executor = null;
+        }
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        config = ProcessorConfig.empty();
         clear();
+        if (retention != null) {
+            retention.stop();
+            retention = null;
+        }
+        if (storage != null) {
+            storage.close();
+            storage = null;
+        }
+        if (metricsServer != null) {
+            metricsServer.stop();
+            metricsServer = null;
+        }
+        metrics = null;
+        timings = null;
     }
 
     public void reload() {
-        protocols.clear();
-        groups.clear();
         invalidCounter = 0;
+        config = ProcessorConfig.valueOf(this);
 
-        final ProtocolOptions<PackT> playOptions = ProtocolOptions.valueOf(ProtocolState.PLAY, this);
-        if (playOptions.allowClear()) {
-            OneTimePack.log(2, "The resource pack clear was allowed to be used on PLAY protocol, " +
-                    "take in count this option may generate problems with < 1.20.3 servers using ViaVersion");
-        }
-        if (playOptions.allowRemove()) {
-            OneTimePack.log(2, "The resource pack remove was allowed to be used on PLAY protocol, " +
-                    "take in count this option may generate problems with servers using ItemsAdder");
-        }
-        protocols.put(ProtocolState.PLAY, playOptions);
-        protocols.put(ProtocolState.CONFIGURATION, ProtocolOptions.valueOf(ProtocolState.CONFIGURATION, this));
-
-        final Map<String, List<String>> duplicated = new HashMap<>();
-        for (String id : OneTimePack.SETTINGS.getKeys("group")) {
-            final ServerGroup<PackT> group = ServerGroup.valueOf(id, this);
-            for (String server : group.getServers()) {
-                final ServerGroup<PackT> replaced = groups.put(server, group);
-                if (replaced != null) {
-                    duplicated.computeIfAbsent(server, s -> {
-                        final List<String> list = new ArrayList<>();
-                        list.add(replaced.getId());
-                        return list;
-                    }).add(group.getId());
-                }
+        loadStorage();
+        loadMetrics();
+    }
+
+    protected void loadMetrics() {
+        if (metricsServer != null) {
+            metricsServer.stop();
+            metricsServer = null;
+        }
+        if (!OneTimePack.SETTINGS.getBoolean("metrics.enabled", false)) {
+            metrics = null;
+            timings = null;
+            return;
+        }
+        PackMetrics metrics = this.metrics;
+        if (metrics == null) {
+            metrics = new PackMetrics();
+            this.metrics = metrics;
+        }
+        metrics.setPackSize(OneTimePack.SETTINGS.getInt("metrics.pack-size", 10240) * 1024L);
+        if (!OneTimePack.SETTINGS.getBoolean("metrics.timings", false)) {
+            timings = null;
+        } else if (timings == null) {
+            timings = new HandlerTimings(getClass().getSimpleName());
+        }
+        if (OneTimePack.SETTINGS.getBoolean("metrics.http.enabled", false)) {
+            metricsServer = MetricsServer.open(
+                    OneTimePack.SETTINGS.getString("metrics.http.host", "127.0.0.1"),
+                    OneTimePack.SETTINGS.getInt("metrics.http.port", 9225),
+                    OneTimePack.SETTINGS.getString("metrics.http.token", ""),
+                    this::writeMetrics
+            );
+        }
+    }
+
+    protected void writeMetrics(@NotNull StringBuilder out) {
+        final PackMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.write(out);
+        }
+        final HandlerTimings timings = this.timings;
+        if (timings != null) {
+            timings.write(out);
+        }
+    }
+
+    protected void loadStorage() {
+        final Set<PackResult> replay = EnumSet.noneOf(PackResult.class);
+        for (String s : OneTimePack.SETTINGS.getStringList("storage.replay")) {
+            final PackResult result = PackResult.of(s, null);
+            if (result == null) {
+                OneTimePack.log(2, "The pack status '{}' is not valid", s);
+            } else {
+                replay.add(result);
             }
         }
-        for (Map.Entry<String, List<String>> entry : duplicated.entrySet()) {
-            final String server = entry.getKey();
-            final List<String> groups = entry.getValue();
-            OneTimePack.log(2, "The server name '" + server + "' is in more than one group: " + String.join(", ", groups));
-            OneTimePack.log(2, "Only the group '" + groups.get(groups.size() - 1) + "' will be used for server '" + server + "'");
+        storageReplay = replay;
+
+        if (retention != null) {
+            retention.stop();
+            retention = null;
+        }
+        final int retentionTime = OneTimePack.SETTINGS.getInt("storage.retention", 0);
+        if (retentionTime > 0) {
+            retention = new PackRetention<>(retentionTime * 1000L, OneTimePack.SETTINGS.getInt("storage.retention-size", 5000));
+            retention.start();
         }
 
-        sendCached1_20_2 = OneTimePack.SETTINGS.getBoolean("experimental.send-cached-1-20-2", false);
-        if (sendCached1_20_2) {
-            OneTimePack.log(2, "The cached resource pack was allowed to be re-sended to 1.20.2 clients, " +
-                    "take in count this option will make 1.20.2 players to re-download resource pack on server switch");
+        if (storage != null) {
+            storage.close();
+            storage = null;
         }
-        sendInvalid = OneTimePack.SETTINGS.getBoolean("experimental.send-invalid", false);
-        if (sendInvalid) {
-            OneTimePack.log(3, "Invalid packs will be send to players");
+        if (!OneTimePack.SETTINGS.getBoolean("storage.enabled", false)) {
+            return;
+        }
+
+        // Save every value used by configured comparators
+        final Map<String, ValueComparator<PackT>> values = new LinkedHashMap<>();
+        for (ProtocolOptions<PackT> option : config.getAllOptions()) {
+            if (option.getComparator() instanceof ComparatorPlan) {
+                for (String name : ((ComparatorPlan<PackT>) option.getComparator()).getNames()) {
+                    if (!values.containsKey(name)) {
+                        final ValueComparator<PackT> comparator = getPackValue(name);
+                        if (comparator != null) {
+                            values.put(name, comparator);
+                        }
+                    }
+                }
+            }
+        }
+        storageValues = values;
+
+        final String type = OneTimePack.SETTINGS.getString("storage.type", "MEMORY");
+        final PackStateStore store = createStore(type.toUpperCase(), OneTimePack.SETTINGS.getInt("storage.ttl", 1440) * 60_000L);
+        if (store == null) {
+            OneTimePack.log(2, "The storage type '{}' is not valid, so pack states will not be saved", type);
+            return;
+        }
+        try {
+            store.open();
+        } catch (Throwable t) {
+            if (OneTimePack.isLoggable(1)) {
+                OneTimePack.log(1, t, "Cannot open the {} storage, so pack states will not be saved", type);
+            }
+            return;
+        }
+        storage = new StateWriter(store, OneTimePack.SETTINGS.getInt("storage.batch.interval", 1000), OneTimePack.SETTINGS.getInt("storage.batch.size", 100));
+        storage.start();
+    }
+
+    @Nullable
+    protected PackStateStore createStore(@NotNull String type, long ttl) {
+        switch (type) {
+            case "MEMORY":
+                return new MemoryStateStore(ttl);
+            case "FILE":
+                final File file = FileUtils.getFile(OneTimePack.get().getProvider().getPluginFolder(), OneTimePack.SETTINGS.getString("storage.file", "storage.dat"));
+                return new FileStateStore(file, ttl);
+            case "HTTP":
+                return new HttpStateStore(
+                        OneTimePack.SETTINGS.getString("storage.http.url", "http://localhost:8080/onetimepack"),
+                        OneTimePack.SETTINGS.getString("storage.http.token", ""),
+                        OneTimePack.SETTINGS.getInt("storage.http.timeout", 5000),
+                        ttl
+                );
+            default:
+                return null;
         }
     }
 
     @Nullable
     protected Optional<PackResult> onPackPush(@NotNull UserT userType, @NotNull StateT state, @NotNull PackT packet, @Nullable UUID id, @Nullable Object hash) {
-        OneTimePack.log(4, () -> "Received " + packet.getClass().getSimpleName() + ": " + packet);
+        final HandlerTimings timings = this.timings;
+        if (timings == null) {
+            return processPackPush(userType, state, packet, id, hash);
+        }
+        final long start = System.nanoTime();
+        try {
+            return processPackPush(userType, state, packet, id, hash);
+        } finally {
+            timings.record(HandlerTimings.Handler.PUSH, System.nanoTime() - start);
+        }
+    }
+
+    @Nullable
+    private Optional<PackResult> processPackPush(@NotNull UserT userType, @NotNull StateT state, @NotNull PackT packet, @Nullable UUID id, @Nullable Object hash) {
+        OneTimePack.log(4, "Received {}: {}", packet.getClass().getSimpleName(), packet);
 
         final PacketUser<PackT> user = getPacketUser(userType);
-        final String server = user.getServer();
-        final ProtocolOptions<PackT> options = getOptions(state, server);
+        final ResolvedOptions<PackT> resolved = user.getOptions(config);
+        final String server = resolved.getServer();
+        final ProtocolOptions<PackT> options = resolved.get(ProtocolState.of(state));
         if (!options.isEnabled()) {
-            OneTimePack.log(4,  () -> "Pack push is disabled for user " + user.getUniqueId() + (server != null ? " at server " + server : "") + " with protocol " + state);
+            if (OneTimePack.isLoggable(4)) {
+                OneTimePack.log(4, "Pack push is disabled for user {}{} with protocol {}", user.getUniqueId(), server != null ? " at server " + server : "", state);
+            }
             return null;
         }
+        count(resolved, state, PackMetrics.Event.PUSH);
 
         // Avoid invalid resource pack sending
-        if (hash == null || String.valueOf(hash).equalsIgnoreCase("null")) {
+        if (PackHash.of(hash) == null) {
             if (isSendInvalid()) {
                 OneTimePack.log(4, "The packet doesn't contains HASH, but invalid packs are allowed");
             } else {
                 countInvalid();
+                count(resolved, state, PackMetrics.Event.INVALID);
                 OneTimePack.log(4, "Invalid packet HASH received, so will be cancelled");
                 return Optional.empty();
             }
@@ -126,71 +304,284 @@ public abstract class Processor<UserT, PackT, StateT extends Enum<StateT>> imple
 
         // Check protocol restrictions
         if (user.getProtocolVersion() < options.getMinProtocol()) {
-            OneTimePack.log(2, "The user " + user.getUniqueId() + " doesn't meet the minimum protocol requirement");
+            OneTimePack.log(2, "The user {} doesn't meet the minimum protocol requirement", user.getUniqueId());
             return Optional.ofNullable(options.getDefaultStatus());
         }
 
         // Cancel resource pack re-sending to player
         final UUID packId;
         if (!options.sendDuplicated() && (packId = user.contains(packet, options)) != null) {
-            OneTimePack.log(4, "Same resource pack received for user: " + user.getUniqueId());
+            OneTimePack.log(4, "Same resource pack received for user: {}", user.getUniqueId());
+            final PackMetrics.Counters counters = count(resolved, state, PackMetrics.Event.DUPLICATED);
+            // Wait for the final status if the client didn't answer the first pack yet
+            final PackResult cached = user.getResults().get(packId);
+            if ((cached == null || cached.isPending()) && await(userType, state, packet, user, packId, options, resolved.getConfig().getAwaitStatus(), counters)) {
+                OneTimePack.log(4, "The user {} is still working on the same resource pack, so the status will be sent later", user.getUniqueId());
+                return Optional.empty();
+            }
             // Re-send to server the actual resource pack status from player
             final PackResult result = user.getResult(packId, options);
             if (result == null) {
-                OneTimePack.log(2, "The user " + user.getUniqueId() + " doesn't have any cached resource pack status");
+                OneTimePack.log(2, "The user {} doesn't have any cached resource pack status", user.getUniqueId());
             }
+            countAvoided(counters, result);
             return Optional.ofNullable(result);
         }
 
+        // Replay the status saved from a previous session
+        if (storage != null && (user.getPacks().isEmpty() || options.getBehavior() == PackBehavior.STACK)) {
+            final PackState.Entry saved = user.restore(packet, options.getComparator());
+            if (saved != null && storageReplay.contains(saved.getResult())) {
+                OneTimePack.log(4, "Same resource pack saved from previous session for user: {}", user.getUniqueId());
+                user.putPack(id, packet);
+                user.putResult(id, saved.getResult());
+                countAvoided(count(resolved, state, PackMetrics.Event.REPLAYED), saved.getResult());
+                return Optional.of(saved.getResult());
+            }
+        }
+
         // Apply pack behavior for +1.20.3 client
         if (!user.isUniquePack() && !user.getPacks().isEmpty()) {
-            OneTimePack.log(4, "Applying " + options.getBehavior().name() + " behavior...");
+            OneTimePack.log(4, "Applying {} behavior...", options.getBehavior().name());
             if (options.getBehavior() == PackBehavior.OVERRIDE) {
                 user.clear();
-                clearPackets(userType, state);
+                final HandlerTimings timings = this.timings;
+                if (timings == null) {
+                    clearPackets(userType, state);
+                } else {
+                    final long start = System.nanoTime();
+                    clearPackets(userType, state);
+                    timings.record(HandlerTimings.Handler.CLEAR, System.nanoTime() - start);
+                }
             }
         }
 
         user.putPack(id, packet);
-        OneTimePack.log(4, "Save packet on " + state.name() + " protocol for user " + user.getUniqueId());
+        if (metrics != null) {
+            user.setPushTime(System.nanoTime());
+        }
+        OneTimePack.log(4, "Save packet on {} protocol for user {}", state.name(), user.getUniqueId());
         return null;
     }
 
+    protected boolean await(@NotNull UserT userType, @NotNull StateT state, @NotNull PackT packet, @NotNull PacketUser<PackT> user, @NotNull UUID packId, @NotNull ProtocolOptions<PackT> options, long timeout, @Nullable PackMetrics.Counters counters) {
+        final ScheduledExecutorService scheduler = this.scheduler;
+        if (timeout <= 0 || scheduler == null) {
+            return false;
+        }
+        final CompletableFuture<PackResult> future = user.await(packId);
+        // Completed inside the status handler, the answer is handed off so the original status is forwarded first
+        future.thenAcceptAsync(result -> {
+            if (result == null) {
+                OneTimePack.log(2, "The user {} doesn't have any cached resource pack status", user.getUniqueId());
+                return;
+            }
+            // The pack was sent on a protocol that the client already left
+            final StateT current = getState(userType);
+            if (current != null && current != state) {
+                OneTimePack.log(4, "The user {} is not on {} protocol anymore, so the awaited result will not be sent", user.getUniqueId(), state);
+                return;
+            }
+            countAvoided(counters, result);
+            try {
+                sendResult(userType, state, packet, result);
+            } catch (Throwable t) {
+                if (OneTimePack.isLoggable(2)) {
+                    OneTimePack.log(2, t, "Cannot send awaited result {} from user {}", result.name(), user.getUniqueId());
+                }
+            }
+        }, scheduler);
+        if (!future.isDone()) {
+            // Completed with the last known status if the client takes too long
+            final ScheduledFuture<?> task = scheduler.schedule(() -> {
+                if (user.release(packId, future)) {
+                    OneTimePack.log(4, "Timed out waiting resource pack status from user {}", user.getUniqueId());
+                    future.complete(user.getResult(packId, options));
+                }
+            }, timeout, TimeUnit.MILLISECONDS);
+            future.whenComplete((result, throwable) -> task.cancel(false));
+        }
+        return true;
+    }
+
     protected boolean onPackPop(@NotNull UserT userType, @NotNull StateT state, @NotNull Object packet, @Nullable UUID id) {
+        final HandlerTimings timings = this.timings;
+        if (timings == null) {
+            return processPackPop(userType, state, packet, id);
+        }
+        final long start = System.nanoTime();
+        try {
+            return processPackPop(userType, state, packet, id);
+        } finally {
+            timings.record(HandlerTimings.Handler.POP, System.nanoTime() - start);
+        }
+    }
+
+    private boolean processPackPop(@NotNull UserT userType, @NotNull StateT state, @NotNull Object packet, @Nullable UUID id) {
         final PacketUser<PackT> user = getPacketUser(userType);
-        final String server = user.getServer();
-        final ProtocolOptions<PackT> options = getOptions(state, server);
+        final ResolvedOptions<PackT> resolved = user.getOptions(config);
+        final String server = resolved.getServer();
+        final ProtocolOptions<PackT> options = resolved.get(ProtocolState.of(state));
         if (!options.isEnabled()) {
-            OneTimePack.log(4,  () -> "Pack pop is disabled for user " + user.getUniqueId() + (server != null ? " at server " + server : "") + " with protocol " + state);
+            if (OneTimePack.isLoggable(4)) {
+                OneTimePack.log(4, "Pack pop is disabled for user {}{} with protocol {}", user.getUniqueId(), server != null ? " at server " + server : "", state);
+            }
             return false;
         }
 
         if (!options.allowClear() && id == null) {
-            OneTimePack.log(4, () -> "Cancelling packs clear from " + state.name() + " protocol for player " + user.getUniqueId());
+            count(resolved, state, PackMetrics.Event.CLEAR_CANCELLED);
+            OneTimePack.log(4, "Cancelling packs clear from {} protocol for player {}", state.name(), user.getUniqueId());
             return true;
         }
         if (!options.allowRemove()) {
-            OneTimePack.log(4, () -> "Cancelling pack remove from " + state.name() + " protocol for player " + user.getUniqueId());
+            count(resolved, state, PackMetrics.Event.REMOVE_CANCELLED);
+            OneTimePack.log(4, "Cancelling pack remove from {} protocol for player {}", state.name(), user.getUniqueId());
             return true;
         }
 
         user.removePack(id);
-        OneTimePack.log(4, () -> "Remove cached packet using: " + packet + " from player " + user.getUniqueId());
+        OneTimePack.log(4, "Remove cached packet using: {} from player {}", packet, user.getUniqueId());
+        save(user);
         return false;
     }
 
     protected <E extends Enum<E>> void onPackStatus(@NotNull UserT userType, @Nullable UUID id, @NotNull E result) {
+        final HandlerTimings timings = this.timings;
+        if (timings == null) {
+            processPackStatus(userType, id, result);
+            return;
+        }
+        final long start = System.nanoTime();
+        try {
+            processPackStatus(userType, id, result);
+        } finally {
+            timings.record(HandlerTimings.Handler.STATUS, System.nanoTime() - start);
+        }
+    }
+
+    private <E extends Enum<E>> void processPackStatus(@NotNull UserT userType, @Nullable UUID id, @NotNull E result) {
         final PacketUser<PackT> user = getPacketUser(userType);
-        user.putResult(id, result);
-        OneTimePack.log(4, () -> "Saved cached result " + result + " from player " + user.getUniqueId());
+        final PackResult packResult = PackResult.from(result);
+        user.putResult(id, packResult);
+        OneTimePack.log(4, "Saved cached result {} from player {}", result, user.getUniqueId());
+        save(user);
+
+        // Time from the last sent pack to the end of its download
+        final PackMetrics metrics = this.metrics;
+        final long pushTime = user.getPushTime();
+        if (metrics != null && pushTime != 0L && (packResult == PackResult.SUCCESS_DOWNLOAD || packResult == PackResult.FAILED_DOWNLOAD)) {
+            user.getOptions(config).getCounters(metrics).recordDownload((System.nanoTime() - pushTime) / 1_000_000L);
+        }
+    }
+
+    @Nullable
+    protected PackMetrics.Counters count(@NotNull ResolvedOptions<PackT> resolved, @NotNull StateT state, @NotNull PackMetrics.Event event) {
+        final PackMetrics metrics = this.metrics;
+        if (metrics == null) {
+            return null;
+        }
+        final PackMetrics.Counters counters = resolved.getCounters(metrics);
+        counters.increment(ProtocolState.of(state), event);
+        return counters;
+    }
+
+    protected void countAvoided(@Nullable PackMetrics.Counters counters, @Nullable PackResult result) {
+        // Only packs that the client already downloaded are counted
+        if (counters != null && (result == PackResult.SUCCESS_DOWNLOAD || result == PackResult.DOWNLOADED)) {
+            counters.addAvoided();
+        }
+    }
+
+    protected void save(@NotNull PacketUser<PackT> user) {
+        final StateWriter storage = this.storage;
+        if (storage == null) {
+            return;
+        }
+        final Map<UUID, PackT> packs = user.getPacks();
+        final Map<UUID, PackResult> results = user.getResults();
+        final long time = System.currentTimeMillis();
+        final List<PackState.Entry> entries = new ArrayList<>(packs.size());
+        for (Map.Entry<UUID, PackT> entry : packs.entrySet()) {
+            final PackResult result = results.get(entry.getKey());
+            // Only packs with a known status are useful
+            if (result == null) {
+                continue;
+            }
+            final Map<String, String> values = new HashMap<>();
+            for (Map.Entry<String, ValueComparator<PackT>> value : storageValues.entrySet()) {
+                final Object object = value.getValue().getValue(entry.getValue());
+                values.put(value.getKey(), object == null ? null : String.valueOf(object));
+            }
+            entries.add(new PackState.Entry(user.isUniquePack() ? null : entry.getKey(), values, result, time));
+        }
+        // Keep the saved entries that were not received again on this session, with their original time
+        final PackState saved = user.getSavedState();
+        if (saved != null) {
+            final ResolvedOptions<PackT> resolved = user.getOptions(config);
+            final int received = entries.size();
+            for (PackState.Entry entry : saved.getEntries()) {
+                if (entries.size() >= PackState.MAX_ENTRIES) {
+                    break;
+                }
+                if (!isReceived(resolved, entries.subList(0, received), entry)) {
+                    entries.add(entry);
+                }
+            }
+        }
+        storage.write(new PackState(user.getUniqueId(), time, entries));
+    }
+
+    private boolean isReceived(@NotNull ResolvedOptions<PackT> resolved, @NotNull List<PackState.Entry> entries, @NotNull PackState.Entry saved) {
+        for (ProtocolState state : PACK_STATES) {
+            final ProtocolOptions<PackT> options = resolved.get(state);
+            if (options == null) {
+                continue;
+            }
+            for (PackState.Entry entry : entries) {
+                if (entry.matches(options.getComparator(), saved)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Nullable
+    public BoundedExecutor getExecutor() {
+        return executor;
+    }
+
+    public boolean execute(@NotNull Runnable task) {
+        final BoundedExecutor executor = this.executor;
+        if (executor == null || !executor.tryExecute(task)) {
+            OneTimePack.log(2, "Cannot run task, the executor is full or disabled: {}", executor);
+            return false;
+        }
+        return true;
+    }
+
+    @Nullable
+    public PackMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Nullable
+    public HandlerTimings getTimings() {
+        return timings;
+    }
+
+    @NotNull
+    public ProcessorConfig<PackT> getConfig() {
+        return config;
     }
 
     public boolean isSendCached1_20_2() {
-        return sendCached1_20_2;
+        return config.isSendCached1_20_2();
     }
 
     public boolean isSendInvalid() {
-        return sendInvalid;
+        return config.isSendInvalid();
     }
 
     protected void countInvalid() {
@@ -202,7 +593,7 @@ public abstract class Processor<UserT, PackT, StateT extends Enum<StateT>> imple
             } catch (Throwable t) {
                 path = "plugins/OneTimePack";
             }
-            OneTimePack.log(2, "Detected invalid resource pack sending, if you are using ItemsAdder turn on the option 'send-invalid' on " + path + "/settings.yml");
+            OneTimePack.log(2, "Detected invalid resource pack sending, if you are using ItemsAdder turn on the option 'send-invalid' on {}/settings.yml", path);
         }
     }
 
@@ -213,13 +604,7 @@ public abstract class Processor<UserT, PackT, StateT extends Enum<StateT>> imple
 
     @NotNull
     public ProtocolOptions<PackT> getOptions(@NotNull StateT state, @Nullable String server) {
-        if (server != null) {
-            final ServerGroup<PackT> options = groups.getOrDefault(server, groups.get("default"));
-            if (options != null) {
-                return options.getOptions(ProtocolState.of(state));
-            }
-        }
-        return protocols.get(ProtocolState.of(state));
+        return config.getOptions(ProtocolState.of(state), server);
     }
 
     @NotNull
@@ -227,15 +612,46 @@ public abstract class Processor<UserT, PackT, StateT extends Enum<StateT>> imple
         return users;
     }
 
+    @Nullable
+    public PacketUser<PackT> getPacketUser(@NotNull UUID uniqueId) {
+        return users.get(uniqueId);
+    }
+
     @NotNull
     protected PacketUser<PackT> getPacketUser(@NotNull UserT user) {
         final UUID uniqueId = getUserId(user);
-        PacketUser<PackT> packetUser = users.get(uniqueId);
-        if (packetUser == null) {
-            packetUser = OneTimePack.get().getProvider().getUser(uniqueId);
-            users.put(uniqueId, packetUser);
+        final PacketUser<PackT> packetUser = users.get(uniqueId);
+        if (packetUser != null) {
+            return packetUser;
         }
-        return packetUser;
+        // Atomic get-or-create, only the bin that holds the user is locked
+        return users.computeIfAbsent(uniqueId, id -> {
+            final PacketUser<PackT> created = OneTimePack.get().getProvider().getUser(id);
+            final PackRetention<PackT> retention = this.retention;
+            if (retention != null) {
+                final PackRetention.Retained<PackT> retained = retention.take(id);
+                if (retained != null && retained.getProtocolVersion() == created.getProtocolVersion()) {
+                    OneTimePack.log(4, "Restoring retained packs for user {}", id);
+                    created.putAll(retained.getPacks(), retained.getResults());
+                }
+            }
+            final StateWriter storage = this.storage;
+            if (storage != null) {
+                // A state that is not saved yet is newer than the stored one
+                final PackState pending = storage.getPending(id);
+                if (pending != null) {
+                    created.setSavedState(pending.isEmpty() ? null : pending);
+                } else {
+                    // Prefetch, so the saved state is (probably) available before the first pack is received
+                    storage.getStore().load(id).whenComplete((state, throwable) -> {
+                        if (state != null && !state.isEmpty()) {
+                            created.setSavedStateIfAbsent(state);
+                        }
+                    });
+                }
+            }
+            return created;
+        });
     }
 
     @NotNull
@@ -249,7 +665,7 @@ public abstract class Processor<UserT, PackT, StateT extends Enum<StateT>> imple
         final boolean nonNull = input.charAt(0) == '!';
         final ValueComparator<PackT> comparator = getPackValue((nonNull ? input.substring(1) : input).toUpperCase());
         if (comparator == null) {
-            OneTimePack.log(2, "The pack comparator '" + input + "' is not valid");
+            OneTimePack.log(2, "The pack comparator '{}' is not valid", input);
             return null;
         }
         return nonNull ? comparator.nonNull() : comparator;
@@ -257,19 +673,60 @@ public abstract class Processor<UserT, PackT, StateT extends Enum<StateT>> imple
 
     public void clear() {
         OneTimePack.log(4, "The data from packet handler was cleared");
-        for (Map.Entry<UUID, PacketUser<PackT>> entry : users.entrySet()) {
-            entry.getValue().clear();
+        final Iterator<PacketUser<PackT>> iterator = users.values().iterator();
+        while (iterator.hasNext()) {
+            final PacketUser<PackT> user = iterator.next();
+            iterator.remove();
+            user.cancelAwaiting();
+            user.clear();
         }
-        users.clear();
     }
 
     public void clear(@NotNull UUID uuid) {
-        OneTimePack.log(4, "Removing data from user " + uuid);
+        OneTimePack.log(4, "Removing data from user {}", uuid);
         final PacketUser<PackT> player = users.remove(uuid);
         if (player != null) {
+            player.cancelAwaiting();
             player.clear();
         }
     }
 
+    public void disconnect(@NotNull UUID uuid) {
+        final PackRetention<PackT> retention = this.retention;
+        if (retention == null) {
+            clear(uuid);
+            return;
+        }
+        final PacketUser<PackT> player = users.remove(uuid);
+        if (player == null) {
+            return;
+        }
+        // Keep only the packs with a status that can be replayed
+        final Map<UUID, PackT> packs = new LinkedHashMap<>();
+        final Map<UUID, PackResult> results = new LinkedHashMap<>();
+        for (Map.Entry<UUID, PackT> entry : player.getPacks().entrySet()) {
+            final PackResult result = player.getResults().get(entry.getKey());
+            if (result != null && storageReplay.contains(result)) {
+                packs.put(entry.getKey(), entry.getValue());
+                results.put(entry.getKey(), result);
+            }
+        }
+        retention.put(uuid, player.getProtocolVersion(), packs, results);
+        if (OneTimePack.isLoggable(4)) {
+            OneTimePack.log(4, "Retaining {} packs from user {}", packs.size(), uuid);
+        }
+        player.cancelAwaiting();
+        player.clear();
+    }
+
     public abstract void clearPackets(@NotNull UserT user, @NotNull StateT state);
+
+    // Current protocol state of the user, null if the platform cannot tell
+    @Nullable
+    protected StateT getState(@NotNull UserT user) {
+        return null;
+    }
+
+    // Sends a resource pack status to the server, used by duplicated packs with a known or awaited status
+    public abstract void sendResult(@NotNull UserT user, @NotNull StateT state, @NotNull PackT packet, @NotNull PackResult result);
 }
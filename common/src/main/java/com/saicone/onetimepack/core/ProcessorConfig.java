@@ -0,0 +1,191 @@
+package com.saicone.onetimepack.core;
+
+import com.saicone.onetimepack.OneTimePack;
+import com.saicone.onetimepack.module.TinySettings;
+import com.saicone.onetimepack.util.ServerMatcher;
+import com.saicone.onetimepack.util.ValueComparator;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+public class ProcessorConfig<PackT> {
+
+    // Immutable once built, the processor only replaces the whole instance on reload
+    @SuppressWarnings("unchecked")
+    private static final ProcessorConfig<?> EMPTY = new ProcessorConfig<>((ProtocolOptions<Object>[]) new ProtocolOptions<?>[ProtocolState.values().length], Map.of(), false, false, 0L);
+
+    private final ProtocolOptions<PackT>[] protocols;
+    private final Map<String, ServerGroup<PackT>> groups;
+    // Groups by server name or pattern, and their options by protocol state ordinal, resolved once per configuration
+    private final ServerMatcher<ServerGroup<PackT>> servers;
+    private final ServerGroup<PackT> defaultGroup;
+    private final Map<ServerGroup<PackT>, ProtocolOptions<PackT>[]> groupOptions;
+
+    private final boolean sendCached1_20_2;
+    private final boolean sendInvalid;
+    // Milliseconds that duplicated packs wait for the status of the pending pack, 0 = disabled
+    private final long awaitStatus;
+
+    @NotNull
+    @SuppressWarnings("unchecked")
+    public static <T> ProcessorConfig<T> empty() {
+        return (ProcessorConfig<T>) EMPTY;
+    }
+
+    @NotNull
+    @SuppressWarnings("unchecked")
+    public static <T> ProcessorConfig<T> valueOf(@NotNull ValueComparator.Provider<T> provider) {
+        final TinySettings config = OneTimePack.SETTINGS;
+
+        final ProtocolOptions<T>[] protocols = (ProtocolOptions<T>[]) new ProtocolOptions<?>[ProtocolState.values().length];
+        final ProtocolOptions<T> playOptions = ProtocolOptions.valueOf(ProtocolState.PLAY, provider);
+        if (playOptions.allowClear()) {
+            OneTimePack.log(2, "The resource pack clear was allowed to be used on PLAY protocol, " +
+                    "take in count this option may generate problems with < 1.20.3 servers using ViaVersion");
+        }
+        if (playOptions.allowRemove()) {
+            OneTimePack.log(2, "The resource pack remove was allowed to be used on PLAY protocol, " +
+                    "take in count this option may generate problems with servers using ItemsAdder");
+        }
+        protocols[ProtocolState.PLAY.ordinal()] = playOptions;
+        protocols[ProtocolState.CONFIGURATION.ordinal()] = ProtocolOptions.valueOf(ProtocolState.CONFIGURATION, provider);
+
+        // Declaration order is kept, since the last matching server pattern takes priority
+        final Map<String, ServerGroup<T>> groups = new LinkedHashMap<>();
+        final Map<String, List<String>> duplicated = new HashMap<>();
+        for (String id : config.getKeys("group")) {
+            final ServerGroup<T> group = ServerGroup.valueOf(id, provider);
+            for (String server : group.getServers()) {
+                final ServerGroup<T> replaced = groups.put(server, group);
+                if (replaced != null) {
+                    duplicated.computeIfAbsent(server, s -> {
+                        final List<String> list = new ArrayList<>();
+                        list.add(replaced.getId());
+                        return list;
+                    }).add(group.getId());
+                }
+            }
+        }
+        for (Map.Entry<String, List<String>> entry : duplicated.entrySet()) {
+            final String server = entry.getKey();
+            final List<String> ids = entry.getValue();
+            OneTimePack.log(2, "The server name '{}' is in more than one group: {}", server, String.join(", ", ids));
+            OneTimePack.log(2, "Only the group '{}' will be used for server '{}'", ids.get(ids.size() - 1), server);
+        }
+
+        final boolean sendCached1_20_2 = config.getBoolean("experimental.send-cached-1-20-2", false);
+        if (sendCached1_20_2) {
+            OneTimePack.log(2, "The cached resource pack was allowed to be re-sended to 1.20.2 clients, " +
+                    "take in count this option will make 1.20.2 players to re-download resource pack on server switch");
+        }
+        final boolean sendInvalid = config.getBoolean("experimental.send-invalid", false);
+        if (sendInvalid) {
+            OneTimePack.log(3, "Invalid packs will be send to players");
+        }
+        final long awaitStatus = Math.max(0L, config.getInt("experimental.await-status", 0));
+        if (awaitStatus > 0 && OneTimePack.isLoggable(3)) {
+            OneTimePack.log(3, "Duplicated packs will wait up to {}ms for the status of the pending pack", awaitStatus);
+        }
+
+        return new ProcessorConfig<>(protocols, Collections.unmodifiableMap(groups), sendCached1_20_2, sendInvalid, awaitStatus);
+    }
+
+    public ProcessorConfig(@NotNull ProtocolOptions<PackT>[] protocols, @NotNull Map<String, ServerGroup<PackT>> groups, boolean sendCached1_20_2, boolean sendInvalid) {
+        this(protocols, groups, sendCached1_20_2, sendInvalid, 0L);
+    }
+
+    public ProcessorConfig(@NotNull ProtocolOptions<PackT>[] protocols, @NotNull Map<String, ServerGroup<PackT>> groups, boolean sendCached1_20_2, boolean sendInvalid, long awaitStatus) {
+        this.protocols = protocols;
+        this.groups = groups;
+        this.groupOptions = new IdentityHashMap<>();
+        for (ServerGroup<PackT> group : groups.values()) {
+            groupOptions.computeIfAbsent(group, ProcessorConfig::toArray);
+        }
+        this.servers = ServerMatcher.of(groups);
+        this.defaultGroup = groups.get("default");
+        this.sendCached1_20_2 = sendCached1_20_2;
+        this.sendInvalid = sendInvalid;
+        this.awaitStatus = awaitStatus;
+    }
+
+    @Nullable
+    public ProtocolOptions<PackT> getOptions(@NotNull ProtocolState state) {
+        return protocols[state.ordinal()];
+    }
+
+    @Nullable
+    public ProtocolOptions<PackT> getOptions(@NotNull ProtocolState state, @Nullable String server) {
+        final ServerGroup<PackT> group = getGroup(server);
+        return group == null ? protocols[state.ordinal()] : groupOptions.get(group)[state.ordinal()];
+    }
+
+    @Nullable
+    public ServerGroup<PackT> getGroup(@Nullable String server) {
+        if (server == null) {
+            return null;
+        }
+        final ServerGroup<PackT> group = servers.get(server);
+        return group == null ? defaultGroup : group;
+    }
+
+    @NotNull
+    public ResolvedOptions<PackT> resolve(@Nullable String server) {
+        final ServerGroup<PackT> group = getGroup(server);
+        if (group == null) {
+            return new ResolvedOptions<>(this, server, null, protocols);
+        }
+        return new ResolvedOptions<>(this, server, group.getId(), groupOptions.get(group));
+    }
+
+    @NotNull
+    @SuppressWarnings("unchecked")
+    private static <T> ProtocolOptions<T>[] toArray(@NotNull ServerGroup<T> group) {
+        final ProtocolOptions<T>[] options = (ProtocolOptions<T>[]) new ProtocolOptions<?>[ProtocolState.values().length];
+        for (ProtocolState state : ProtocolState.values()) {
+            options[state.ordinal()] = group.getOptions(state);
+        }
+        return options;
+    }
+
+    @NotNull
+    public Map<String, ServerGroup<PackT>> getGroups() {
+        return groups;
+    }
+
+    // Every configured option, including the ones from server groups
+    @NotNull
+    public Collection<ProtocolOptions<PackT>> getAllOptions() {
+        final Collection<ProtocolOptions<PackT>> options = new LinkedHashSet<>();
+        for (ProtocolOptions<PackT> option : protocols) {
+            if (option != null) {
+                options.add(option);
+            }
+        }
+        for (ServerGroup<PackT> group : groups.values()) {
+            options.add(group.getOptions(ProtocolState.PLAY));
+            options.add(group.getOptions(ProtocolState.CONFIGURATION));
+        }
+        return options;
+    }
+
+    public boolean isSendCached1_20_2() {
+        return sendCached1_20_2;
+    }
+
+    public boolean isSendInvalid() {
+        return sendInvalid;
+    }
+
+    public long getAwaitStatus() {
+        return awaitStatus;
+    }
+}
@@ -0,0 +1,59 @@
+package com.saicone.onetimepack.core;
+
+import com.saicone.onetimepack.module.metrics.PackMetrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+public final class ResolvedOptions<PackT> {
+
+    private final ProcessorConfig<PackT> config;
+    private final String server;
+    private final String group;
+    // Options by protocol state ordinal
+    private final ProtocolOptions<PackT>[] options;
+
+    // Metrics of the group, taken on first use
+    private PackMetrics.Counters counters;
+
+    ResolvedOptions(@NotNull ProcessorConfig<PackT> config, @Nullable String server, @Nullable String group, @NotNull ProtocolOptions<PackT>[] options) {
+        this.config = config;
+        this.server = server;
+        this.group = group;
+        this.options = options;
+    }
+
+    @NotNull
+    public ProcessorConfig<PackT> getConfig() {
+        return config;
+    }
+
+    @Nullable
+    public String getServer() {
+        return server;
+    }
+
+    @Nullable
+    public String getGroup() {
+        return group;
+    }
+
+    @NotNull
+    public PackMetrics.Counters getCounters(@NotNull PackMetrics metrics) {
+        PackMetrics.Counters counters = this.counters;
+        if (counters == null || counters.getMetrics() != metrics) {
+            counters = metrics.getCounters(group);
+            this.counters = counters;
+        }
+        return counters;
+    }
+
+    @Nullable
+    public ProtocolOptions<PackT> get(@NotNull ProtocolState state) {
+        return options[state.ordinal()];
+    }
+
+    public boolean isValid(@NotNull ProcessorConfig<PackT> config, @Nullable String server) {
+        // Server names are usually the same instance provided by the proxy server info
+        return this.config == config && (this.server == server || (this.server != null && this.server.equals(server)));
+    }
+}
@@ -5,7 +5,7 @@ import com.saicone.onetimepack.module.TinySettings;
 import com.saicone.onetimepack.util.ValueComparator;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -20,7 +20,7 @@ public class ServerGroup<PackT> {
         final TinySettings config = OneTimePack.SETTINGS;
         return new ServerGroup<>(
                 id,
-                new HashSet<>(config.getStringList("group." + id + ".servers")),
+                new LinkedHashSet<>(config.getStringList("group." + id + ".servers")),
                 Map.of(
                         ProtocolState.PLAY, ProtocolOptions.valueOf(id, ProtocolState.PLAY, provider),
                         ProtocolState.CONFIGURATION, ProtocolOptions.valueOf(id, ProtocolState.CONFIGURATION, provider)
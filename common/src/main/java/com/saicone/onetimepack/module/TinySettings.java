@@ -1,6 +1,7 @@
 package com.saicone.onetimepack.module;
 
 import com.saicone.onetimepack.util.FileUtils;
+import com.saicone.onetimepack.util.Snapshot;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -215,16 +216,30 @@ public abstract class TinySettings {
         data.clear();
         final File file = FileUtils.saveResource(folder, fileName, false);
         if (file != null) {
+            // The parsed file is saved as binary snapshot, so it's only parsed again when it's edited
+            final File snapshot = Snapshot.getFile(folder, fileName);
+            final long checksum = Snapshot.checksum(file);
+            final Object cached = Snapshot.read(snapshot, checksum, Snapshot::readValue);
+            if (cached instanceof Map<?,?> map) {
+                putAll(map);
+                return;
+            }
             try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
                 final Object result = read(reader);
                 if (result instanceof Map<?,?> map) {
-                    for (Map.Entry<?, ?> entry : map.entrySet()) {
-                        data.put(String.valueOf(entry.getKey()), entry.getValue());
-                    }
+                    putAll(map);
                 }
             } catch (IOException e) {
                 e.printStackTrace();
+                return;
             }
+            Snapshot.write(snapshot, checksum, out -> Snapshot.writeValue(out, data));
+        }
+    }
+
+    private void putAll(@NotNull Map<?, ?> map) {
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            data.put(String.valueOf(entry.getKey()), entry.getValue());
         }
     }
 
@@ -0,0 +1,111 @@
+package com.saicone.onetimepack.module.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+public class HandlerTimings {
+
+    // 1/8 relative error, enough to compare percentiles without the memory of a full HDR histogram
+    private static final int PRECISION = 3;
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final String module;
+    // Nanoseconds by handler ordinal
+    private final Histogram[] handlers = new Histogram[Handler.values().length];
+
+    public HandlerTimings(@NotNull String module) {
+        this.module = module;
+        for (int i = 0; i < handlers.length; i++) {
+            handlers[i] = new Histogram(PRECISION);
+        }
+    }
+
+    @NotNull
+    public String getModule() {
+        return module;
+    }
+
+    @NotNull
+    public Histogram get(@NotNull Handler handler) {
+        return handlers[handler.ordinal()];
+    }
+
+    public void record(@NotNull Handler handler, long nanos) {
+        handlers[handler.ordinal()].record(nanos);
+    }
+
+    @NotNull
+    public List<String> summary() {
+        final List<String> lines = new ArrayList<>();
+        lines.add("&a&lOneTimePack timings &7(" + module + ")");
+        for (Handler handler : Handler.values()) {
+            final Histogram histogram = get(handler);
+            final long count = histogram.getCount();
+            if (count == 0) {
+                lines.add("&e" + handler.getName() + "&7: &fnot called yet");
+                continue;
+            }
+            final StringBuilder builder = new StringBuilder();
+            for (double percentile : PERCENTILES) {
+                builder.append("&fp").append(formatPercentile(percentile)).append(' ').append(formatNanos(histogram.getPercentile(percentile))).append("&7, ");
+            }
+            builder.append("&fmax ").append(formatNanos(histogram.getMax()));
+            lines.add("&e" + handler.getName() + " &7(" + count + " calls): " + builder);
+        }
+        return lines;
+    }
+
+    // Prometheus summary, percentiles are calculated from the histogram buckets
+    public void write(@NotNull StringBuilder out) {
+        out.append("# HELP onetimepack_handler_seconds Time spent by OneTimePack packet handlers\n");
+        out.append("# TYPE onetimepack_handler_seconds summary\n");
+        for (Handler handler : Handler.values()) {
+            final Histogram histogram = get(handler);
+            final String labels = "module=\"" + module + "\",handler=\"" + handler.getName() + "\"";
+            for (double percentile : PERCENTILES) {
+                out.append("onetimepack_handler_seconds{").append(labels).append(",quantile=\"").append(BigDecimal.valueOf(percentile).movePointLeft(2).stripTrailingZeros().toPlainString()).append("\"} ")
+                        .append(histogram.getPercentile(percentile) / 1_000_000_000.0).append('\n');
+            }
+            out.append("onetimepack_handler_seconds_sum{").append(labels).append("} ").append(histogram.getSum() / 1_000_000_000.0).append('\n');
+            out.append("onetimepack_handler_seconds_count{").append(labels).append("} ").append(histogram.getCount()).append('\n');
+        }
+    }
+
+    @NotNull
+    private static String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+    }
+
+    @NotNull
+    public static String formatNanos(long nanos) {
+        if (nanos < 1_000L) {
+            return nanos + "ns";
+        }
+        if (nanos < 1_000_000L) {
+            return String.format("%.1fus", nanos / 1_000.0);
+        }
+        return String.format("%.2fms", nanos / 1_000_000.0);
+    }
+
+    public enum Handler {
+
+        PUSH("onPackPush"),
+        POP("onPackPop"),
+        STATUS("onPackStatus"),
+        CLEAR("clearPackets");
+
+        private final String name;
+
+        Handler(@NotNull String name) {
+            this.name = name;
+        }
+
+        @NotNull
+        public String getName() {
+            return name;
+        }
+    }
+}
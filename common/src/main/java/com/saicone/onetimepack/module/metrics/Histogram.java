@@ -0,0 +1,108 @@
+package com.saicone.onetimepack.module.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class Histogram {
+
+    // Log-linear buckets like HDR histograms: every power of two is split into 2^precision sub-buckets,
+    // so the relative error is 1 / 2^precision. Values bigger than 2^MAX_EXPONENT are counted on the last bucket
+    private static final int MAX_EXPONENT = 40;
+
+    private final int precision;
+    private final long mask;
+    private final LongAdder[] buckets;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    public Histogram() {
+        this(0);
+    }
+
+    public Histogram(int precision) {
+        this.precision = precision;
+        this.mask = (1L << precision) - 1;
+        this.buckets = new LongAdder[(MAX_EXPONENT - precision + 2) << precision];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    // Every bucket contains the values up to its upper bound
+    private int bucket(long value) {
+        final long offset = value <= 0L ? 0L : value - 1;
+        if (offset <= mask) {
+            return (int) offset;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(offset);
+        final int index = ((exponent - precision + 1) << precision) | (int) ((offset >>> (exponent - precision)) & mask);
+        return Math.min(buckets.length - 1, index);
+    }
+
+    public long getUpperBound(int bucket) {
+        if (bucket <= mask) {
+            return bucket + 1;
+        }
+        final int exponent = (bucket >> precision) + precision - 1;
+        final long lower = ((1L << precision) | (bucket & mask)) << (exponent - precision);
+        return lower + (1L << (exponent - precision));
+    }
+
+    public void record(long value) {
+        if (value < 0L) {
+            value = 0L;
+        }
+        buckets[bucket(value)].increment();
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public int size() {
+        return buckets.length;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getCount(int bucket) {
+        return buckets[bucket].sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public long getMean() {
+        final long count = getCount();
+        return count == 0 ? 0L : getSum() / count;
+    }
+
+    // Upper bound of the bucket that holds the percentile, limited by the max recorded value
+    public long getPercentile(double percentile) {
+        final long[] counts = new long[buckets.length];
+        long total = 0L;
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0L) {
+            return 0L;
+        }
+        final long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * total));
+        long cumulative = 0L;
+        for (int i = 0; i < buckets.length; i++) {
+            cumulative += counts[i];
+            if (cumulative >= rank) {
+                return Math.min(getUpperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+}
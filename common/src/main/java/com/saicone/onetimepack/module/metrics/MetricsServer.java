@@ -0,0 +1,89 @@
+package com.saicone.onetimepack.module.metrics;
+
+import com.saicone.onetimepack.OneTimePack;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+public class MetricsServer {
+
+    // GET /metrics = metrics in Prometheus text format
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final String host;
+    private final int port;
+    private final String token;
+    private final Consumer<StringBuilder> output;
+
+    private HttpServer server;
+
+    public MetricsServer(@NotNull String host, int port, @NotNull String token, @NotNull Consumer<StringBuilder> output) {
+        this.host = host;
+        this.port = port;
+        this.token = token;
+        this.output = output;
+    }
+
+    @NotNull
+    public String getAddress() {
+        return host + ":" + port;
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext("/metrics", this::handle);
+        // A single thread is enough for a scraper
+        server.setExecutor(null);
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    private void handle(@NotNull HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            if (!token.isBlank() && !("Bearer " + token).equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+                exchange.sendResponseHeaders(401, -1);
+                return;
+            }
+            final StringBuilder builder = new StringBuilder();
+            output.accept(builder);
+            final byte[] body = builder.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (Throwable t) {
+            OneTimePack.log(2, "Cannot answer metrics request: {}", t.getMessage());
+        }
+    }
+
+    @Nullable
+    public static MetricsServer open(@NotNull String host, int port, @NotNull String token, @NotNull Consumer<StringBuilder> output) {
+        final MetricsServer server = new MetricsServer(host, port, token, output);
+        try {
+            server.start();
+        } catch (IOException | RuntimeException e) {
+            OneTimePack.log(1, "Cannot start metrics endpoint on {}: {}", server.getAddress(), e.getMessage());
+            return null;
+        }
+        OneTimePack.log(3, "Metrics endpoint started on http://{}/metrics", server.getAddress());
+        return server;
+    }
+}
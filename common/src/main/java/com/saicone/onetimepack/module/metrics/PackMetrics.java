@@ -0,0 +1,241 @@
+package com.saicone.onetimepack.module.metrics;
+
+import com.saicone.onetimepack.core.ProtocolState;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class PackMetrics {
+
+    // Users without a server group
+    public static final String GLOBAL = "global";
+
+    private static final ProtocolState[] STATES = ProtocolState.values();
+    private static final Event[] EVENTS = Event.values();
+
+    private final long start = System.currentTimeMillis();
+    // Lock-free after the first use of every group, the counters are cached on resolved user options
+    private final Map<String, Counters> groups = new ConcurrentHashMap<>();
+    private volatile long packSize;
+
+    @NotNull
+    public Counters getCounters(@Nullable String group) {
+        final String key = group == null ? GLOBAL : group;
+        final Counters counters = groups.get(key);
+        if (counters != null) {
+            return counters;
+        }
+        return groups.computeIfAbsent(key, id -> new Counters(this, id));
+    }
+
+    @NotNull
+    public Collection<Counters> getGroups() {
+        return new TreeMap<>(groups).values();
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getPackSize() {
+        return packSize;
+    }
+
+    public void setPackSize(long packSize) {
+        this.packSize = Math.max(0L, packSize);
+    }
+
+    @NotNull
+    public List<String> summary() {
+        final List<String> lines = new ArrayList<>();
+        lines.add("&a&lOneTimePack metrics &7(since " + formatTime(System.currentTimeMillis() - start) + " ago)");
+        long avoided = 0L;
+        for (Counters counters : getGroups()) {
+            for (ProtocolState state : STATES) {
+                final StringBuilder builder = new StringBuilder();
+                for (Event event : EVENTS) {
+                    final long value = counters.get(state, event);
+                    if (value > 0) {
+                        builder.append(builder.length() == 0 ? "" : "&7, ").append("&f").append(value).append(" &7").append(event.getDisplayName());
+                    }
+                }
+                if (builder.length() > 0) {
+                    lines.add("&e" + counters.getGroup() + " &8" + state.name().toLowerCase() + "&7: " + builder);
+                }
+            }
+            final Histogram download = counters.getDownloadTime();
+            if (download.getCount() > 0) {
+                lines.add("&e" + counters.getGroup() + " &7download time: &fp50 " + formatTime(download.getPercentile(50))
+                        + "&7, &fp95 " + formatTime(download.getPercentile(95))
+                        + "&7, &fp99 " + formatTime(download.getPercentile(99))
+                        + "&7, &fmax " + formatTime(download.getMax()));
+            }
+            avoided += counters.getAvoidedBytes();
+        }
+        if (lines.size() == 1) {
+            lines.add("&7Nothing was handled yet");
+        }
+        lines.add("&7Download avoided: &f~" + formatBytes(avoided));
+        return lines;
+    }
+
+    // Prometheus text format, so any local scraper can read it
+    public void write(@NotNull StringBuilder out) {
+        final Collection<Counters> groups = getGroups();
+        out.append("# HELP onetimepack_packets_total Resource pack packets handled by OneTimePack\n");
+        out.append("# TYPE onetimepack_packets_total counter\n");
+        for (Counters counters : groups) {
+            for (ProtocolState state : STATES) {
+                for (Event event : EVENTS) {
+                    final long value = counters.get(state, event);
+                    if (value > 0) {
+                        out.append("onetimepack_packets_total{group=\"").append(escape(counters.getGroup()))
+                                .append("\",state=\"").append(state.name().toLowerCase())
+                                .append("\",event=\"").append(event.name().toLowerCase())
+                                .append("\"} ").append(value).append('\n');
+                    }
+                }
+            }
+        }
+        out.append("# HELP onetimepack_avoided_bytes_total Estimated bytes of pack download avoided by cancelled packets\n");
+        out.append("# TYPE onetimepack_avoided_bytes_total counter\n");
+        for (Counters counters : groups) {
+            out.append("onetimepack_avoided_bytes_total{group=\"").append(escape(counters.getGroup())).append("\"} ").append(counters.getAvoidedBytes()).append('\n');
+        }
+        out.append("# HELP onetimepack_download_seconds Time between a sent pack and its final status\n");
+        out.append("# TYPE onetimepack_download_seconds histogram\n");
+        for (Counters counters : groups) {
+            final Histogram download = counters.getDownloadTime();
+            final long count = download.getCount();
+            if (count == 0) {
+                continue;
+            }
+            final String group = escape(counters.getGroup());
+            long cumulative = 0L;
+            for (int i = 0; i < download.size() && cumulative < count; i++) {
+                cumulative += download.getCount(i);
+                out.append("onetimepack_download_seconds_bucket{group=\"").append(group).append("\",le=\"").append(download.getUpperBound(i) / 1000.0).append("\"} ").append(cumulative).append('\n');
+            }
+            out.append("onetimepack_download_seconds_bucket{group=\"").append(group).append("\",le=\"+Inf\"} ").append(count).append('\n');
+            out.append("onetimepack_download_seconds_sum{group=\"").append(group).append("\"} ").append(download.getSum() / 1000.0).append('\n');
+            out.append("onetimepack_download_seconds_count{group=\"").append(group).append("\"} ").append(count).append('\n');
+        }
+    }
+
+    @NotNull
+    private static String escape(@NotNull String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    @NotNull
+    public static String formatTime(long millis) {
+        if (millis < 1000L) {
+            return millis + "ms";
+        }
+        final long seconds = millis / 1000L;
+        if (seconds < 60L) {
+            return String.format("%.1fs", millis / 1000.0);
+        }
+        if (seconds < 3600L) {
+            return (seconds / 60L) + "m " + (seconds % 60L) + "s";
+        }
+        return (seconds / 3600L) + "h " + (seconds % 3600L / 60L) + "m";
+    }
+
+    @NotNull
+    public static String formatBytes(long bytes) {
+        if (bytes < 1024L) {
+            return bytes + " B";
+        }
+        final String[] units = {"KB", "MB", "GB", "TB"};
+        double value = bytes;
+        int unit = -1;
+        while (value >= 1024.0 && unit < units.length - 1) {
+            value /= 1024.0;
+            unit++;
+        }
+        return String.format("%.1f %s", value, units[unit]);
+    }
+
+    public enum Event {
+
+        PUSH("pushes"),
+        DUPLICATED("duplicated cancelled"),
+        REPLAYED("saved statuses replayed"),
+        INVALID("invalid"),
+        CLEAR_CANCELLED("clears cancelled"),
+        REMOVE_CANCELLED("removes cancelled");
+
+        private final String displayName;
+
+        Event(@NotNull String displayName) {
+            this.displayName = displayName;
+        }
+
+        @NotNull
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    public static final class Counters {
+
+        private final PackMetrics metrics;
+        private final String group;
+        // Count by protocol state and event ordinal
+        private final LongAdder[] events = new LongAdder[STATES.length * EVENTS.length];
+        private final LongAdder avoidedBytes = new LongAdder();
+        // Milliseconds
+        private final Histogram downloadTime = new Histogram();
+
+        private Counters(@NotNull PackMetrics metrics, @NotNull String group) {
+            this.metrics = metrics;
+            this.group = group;
+            for (int i = 0; i < events.length; i++) {
+                events[i] = new LongAdder();
+            }
+        }
+
+        @NotNull
+        public PackMetrics getMetrics() {
+            return metrics;
+        }
+
+        @NotNull
+        public String getGroup() {
+            return group;
+        }
+
+        public long get(@NotNull ProtocolState state, @NotNull Event event) {
+            return events[state.ordinal() * EVENTS.length + event.ordinal()].sum();
+        }
+
+        public long getAvoidedBytes() {
+            return avoidedBytes.sum();
+        }
+
+        @NotNull
+        public Histogram getDownloadTime() {
+            return downloadTime;
+        }
+
+        public void increment(@NotNull ProtocolState state, @NotNull Event event) {
+            events[state.ordinal() * EVENTS.length + event.ordinal()].increment();
+        }
+
+        public void addAvoided() {
+            avoidedBytes.add(metrics.packSize);
+        }
+
+        public void recordDownload(long millis) {
+            downloadTime.record(millis);
+        }
+    }
+}
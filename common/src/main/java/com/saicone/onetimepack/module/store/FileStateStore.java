@@ -0,0 +1,187 @@
+package com.saicone.onetimepack.module.store;
+
+import com.saicone.onetimepack.OneTimePack;
+import com.saicone.onetimepack.core.PackState;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class FileStateStore implements PackStateStore {
+
+    // Append-only log, every record is the full state of one user, so the last record always wins
+    private static final int MAGIC = 0x4F545053; // OTPS
+    private static final int VERSION = 2;
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    // The log is rewritten when it holds this many records per live state
+    private static final int COMPACT_RATIO = 4;
+    private static final int COMPACT_MIN = 1024;
+
+    private final File file;
+    private final long ttl;
+    private final Map<UUID, PackState> states = new ConcurrentHashMap<>();
+
+    private DataOutputStream out;
+    // Records on the log since the last compaction, only used by the writer thread
+    private int records;
+
+    public FileStateStore(@NotNull File file, long ttl) {
+        this.file = file;
+        this.ttl = ttl;
+    }
+
+    @NotNull
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public void open() {
+        states.clear();
+        if (file.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    OneTimePack.log(2, "The file {} is not a valid pack storage, so will be replaced", file.getName());
+                } else {
+                    read(in);
+                }
+            } catch (EOFException ignored) {
+                // Empty file
+            } catch (IOException e) {
+                if (OneTimePack.isLoggable(1)) {
+                    OneTimePack.log(1, e, "Cannot read pack storage from {}", file.getName());
+                }
+            }
+        }
+        states.values().removeIf(state -> state.isExpired(ttl));
+        compact();
+        if (OneTimePack.isLoggable(3)) {
+            OneTimePack.log(3, "Loaded {} saved pack states", states.size());
+        }
+    }
+
+    private void read(@NotNull DataInputStream in) throws IOException {
+        while (true) {
+            final byte type;
+            try {
+                type = in.readByte();
+            } catch (EOFException e) {
+                return;
+            }
+            try {
+                if (type == REMOVE) {
+                    states.remove(PackState.readUniqueId(in));
+                } else if (type == PUT) {
+                    final PackState state = PackState.read(in);
+                    states.put(state.getUniqueId(), state);
+                } else {
+                    OneTimePack.log(2, "Found unknown record type on pack storage, the remaining data will be ignored");
+                    return;
+                }
+            } catch (EOFException e) {
+                // The last record was not fully written
+                OneTimePack.log(2, "The pack storage ends with an incomplete record, so will be ignored");
+                return;
+            }
+        }
+    }
+
+    private void compact() {
+        // Rewrite the log with only the live states, then keep appending to it
+        if (!file.getParentFile().exists()) {
+            file.getParentFile().mkdirs();
+        }
+        final File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                for (PackState state : states.values()) {
+                    out.writeByte(PUT);
+                    state.write(out);
+                }
+            }
+            if (out != null) {
+                out.close();
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+            records = states.size();
+        } catch (IOException e) {
+            out = null;
+            if (OneTimePack.isLoggable(1)) {
+                OneTimePack.log(1, e, "Cannot write pack storage into {}, the pack states will not be saved", file.getName());
+            }
+        }
+    }
+
+    @Override
+    public @NotNull CompletableFuture<PackState> load(@NotNull UUID uniqueId) {
+        final PackState state = states.get(uniqueId);
+        if (state == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        // Entries expire by the time they were received, not by the last save
+        final PackState valid = state.expire(ttl);
+        if (valid == null) {
+            states.remove(uniqueId, state);
+        }
+        return CompletableFuture.completedFuture(valid);
+    }
+
+    @Override
+    public void save(@NotNull Collection<PackState> states) throws IOException {
+        for (PackState state : states) {
+            if (state.isEmpty()) {
+                if (this.states.remove(state.getUniqueId()) != null && out != null) {
+                    out.writeByte(REMOVE);
+                    PackState.writeUniqueId(out, state.getUniqueId());
+                    records++;
+                }
+            } else {
+                this.states.put(state.getUniqueId(), state);
+                if (out != null) {
+                    out.writeByte(PUT);
+                    state.write(out);
+                    records++;
+                }
+            }
+        }
+        // Saves are batched, so this doesn't run on every packet
+        this.states.values().removeIf(state -> state.isExpired(ttl));
+        if (out != null) {
+            if (records > Math.max(COMPACT_MIN, this.states.size() * COMPACT_RATIO)) {
+                // Drops overwritten, removed and expired records
+                compact();
+            } else {
+                out.flush();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException ignored) { }
+            out = null;
+        }
+        states.clear();
+    }
+}
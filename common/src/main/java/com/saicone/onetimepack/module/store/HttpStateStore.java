@@ -0,0 +1,132 @@
+package com.saicone.onetimepack.module.store;
+
+import com.saicone.onetimepack.OneTimePack;
+import com.saicone.onetimepack.core.PackState;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+public class HttpStateStore implements PackStateStore {
+
+    // Simple binary protocol, so any shared service (or a local stand-in) can hold the states of multiple proxies:
+    // GET  <url>/<uuid> = 200 with one state, or 404 if the user doesn't have any saved state
+    // POST <url>        = body with state count followed by every state, an empty state means remove
+    private static final String CONTENT_TYPE = "application/octet-stream";
+
+    private final String url;
+    private final String token;
+    private final Duration timeout;
+    private final long ttl;
+
+    private volatile HttpClient client;
+
+    public HttpStateStore(@NotNull String url, @NotNull String token, long timeout, long ttl) {
+        this.url = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+        this.token = token;
+        this.timeout = Duration.ofMillis(timeout);
+        this.ttl = ttl;
+    }
+
+    @NotNull
+    public String getUrl() {
+        return url;
+    }
+
+    @Override
+    public void open() {
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    @NotNull
+    private HttpRequest.Builder request(@NotNull String url) {
+        final HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url)).timeout(timeout);
+        if (!token.isBlank()) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+
+    @Override
+    public @NotNull CompletableFuture<PackState> load(@NotNull UUID uniqueId) {
+        final HttpClient client = this.client;
+        if (client == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        final HttpRequest request = request(url + "/" + uniqueId).GET().build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).handle((response, throwable) -> {
+            if (throwable != null) {
+                OneTimePack.log(2, "Cannot load pack state of user {} from {}: {}", uniqueId, url, throwable.getMessage());
+                return null;
+            }
+            if (response.statusCode() == 404) {
+                return null;
+            }
+            if (response.statusCode() != 200) {
+                if (OneTimePack.isLoggable(2)) {
+                    OneTimePack.log(2, "Cannot load pack state of user {} from {}, the server returned {}", uniqueId, url, response.statusCode());
+                }
+                return null;
+            }
+            try {
+                final PackState state = PackState.read(new DataInputStream(new ByteArrayInputStream(response.body())));
+                return state.expire(ttl);
+            } catch (IOException e) {
+                if (OneTimePack.isLoggable(2)) {
+                    OneTimePack.log(2, e, "Received invalid pack state of user {} from {}", uniqueId, url);
+                }
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public void save(@NotNull Collection<PackState> states) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(states.size());
+            for (PackState state : states) {
+                state.write(out);
+            }
+        }
+        final HttpRequest request = request(url)
+                .header("Content-Type", CONTENT_TYPE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(bytes.toByteArray()))
+                .build();
+        final HttpClient client = this.client;
+        if (client == null) {
+            throw new IOException("The pack state store is closed");
+        }
+        final HttpResponse<Void> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while saving pack states", e);
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("The server " + url + " returned " + response.statusCode());
+        }
+    }
+
+    @Override
+    public void close() {
+        // HttpClient doesn't need to be closed on Java 17, just release the reference
+        client = null;
+    }
+}
@@ -0,0 +1,52 @@
+package com.saicone.onetimepack.module.store;
+
+import com.saicone.onetimepack.core.PackState;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class MemoryStateStore implements PackStateStore {
+
+    private final long ttl;
+    private final Map<UUID, PackState> states = new ConcurrentHashMap<>();
+
+    public MemoryStateStore(long ttl) {
+        this.ttl = ttl;
+    }
+
+    @Override
+    public @NotNull CompletableFuture<PackState> load(@NotNull UUID uniqueId) {
+        final PackState state = states.get(uniqueId);
+        if (state == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        // Entries expire by the time they were received, not by the last save
+        final PackState valid = state.expire(ttl);
+        if (valid == null) {
+            states.remove(uniqueId, state);
+        }
+        return CompletableFuture.completedFuture(valid);
+    }
+
+    @Override
+    public void save(@NotNull Collection<PackState> states) {
+        for (PackState state : states) {
+            if (state.isEmpty()) {
+                this.states.remove(state.getUniqueId());
+            } else {
+                this.states.put(state.getUniqueId(), state);
+            }
+        }
+        // Saves are batched, so this doesn't run on every packet
+        this.states.values().removeIf(state -> state.isExpired(ttl));
+    }
+
+    @Override
+    public void close() {
+        states.clear();
+    }
+}
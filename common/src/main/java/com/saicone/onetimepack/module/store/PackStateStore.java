@@ -0,0 +1,27 @@
+package com.saicone.onetimepack.module.store;
+
+import com.saicone.onetimepack.core.PackState;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+public interface PackStateStore {
+
+    default void open() throws IOException {
+        // empty default method
+    }
+
+    // Can be completed on any thread, packet threads only check if it's already completed
+    @NotNull
+    CompletableFuture<PackState> load(@NotNull UUID uniqueId);
+
+    // Called from the writer thread with a batch of states, an empty state means the user must be removed
+    void save(@NotNull Collection<PackState> states) throws IOException;
+
+    default void close() {
+        // empty default method
+    }
+}
@@ -0,0 +1,127 @@
+package com.saicone.onetimepack.module.store;
+
+import com.saicone.onetimepack.OneTimePack;
+import com.saicone.onetimepack.core.PackState;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class StateWriter {
+
+    private final PackStateStore store;
+    private final long interval;
+    private final int batchSize;
+
+    // Only the last state of every user is written, so multiple updates between flushes are merged
+    private final Map<UUID, PackState> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+
+    private ScheduledExecutorService executor;
+
+    public StateWriter(@NotNull PackStateStore store, long interval, int batchSize) {
+        this.store = store;
+        this.interval = interval;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @NotNull
+    public PackStateStore getStore() {
+        return store;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    @Nullable
+    public PackState getPending(@NotNull UUID uniqueId) {
+        return pending.get(uniqueId);
+    }
+
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "OneTimePack State Writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public void write(@NotNull PackState state) {
+        pending.put(state.getUniqueId(), state);
+        // Don't wait for the next interval if there's a full batch
+        if (pending.size() >= batchSize && flushing.compareAndSet(false, true)) {
+            final ScheduledExecutorService executor = this.executor;
+            if (executor == null || executor.isShutdown()) {
+                flushing.set(false);
+                return;
+            }
+            executor.execute(() -> {
+                flushing.set(false);
+                flush();
+            });
+        }
+    }
+
+    public void flush() {
+        final List<PackState> batch = new ArrayList<>(Math.min(pending.size(), batchSize));
+        final Iterator<UUID> iterator = pending.keySet().iterator();
+        while (iterator.hasNext()) {
+            final PackState state = pending.remove(iterator.next());
+            if (state == null) {
+                continue;
+            }
+            batch.add(state);
+            if (batch.size() >= batchSize) {
+                save(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            save(batch);
+        }
+    }
+
+    private void save(@NotNull List<PackState> batch) {
+        try {
+            store.save(batch);
+        } catch (IOException e) {
+            if (OneTimePack.isLoggable(1)) {
+                OneTimePack.log(1, e, "Cannot save {} pack states", batch.size());
+            }
+        } catch (Throwable t) {
+            if (OneTimePack.isLoggable(1)) {
+                OneTimePack.log(1, t, "Unexpected error while saving {} pack states", batch.size());
+            }
+        }
+    }
+
+    public void close() {
+        final ScheduledExecutorService executor = this.executor;
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    OneTimePack.log(2, "The pack state writer took too long to finish, some states may be lost");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            this.executor = null;
+        }
+        // Write the remaining states before close
+        flush();
+        store.close();
+    }
+}
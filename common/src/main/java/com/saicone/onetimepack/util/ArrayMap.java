@@ -0,0 +1,157 @@
+package com.saicone.onetimepack.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+public final class ArrayMap<K, V> extends AbstractMap<K, V> {
+
+    // Immutable and insertion ordered map backed by a single array of keys and values,
+    // made for the few entries that a user can have, so lookups are just a linear scan
+    private static final ArrayMap<?, ?> EMPTY = new ArrayMap<>(new Object[0]);
+
+    private final Object[] table;
+
+    @NotNull
+    @SuppressWarnings("unchecked")
+    public static <K, V> ArrayMap<K, V> of() {
+        return (ArrayMap<K, V>) EMPTY;
+    }
+
+    @NotNull
+    public static <K, V> ArrayMap<K, V> copyOf(@NotNull Map<? extends K, ? extends V> map) {
+        if (map instanceof ArrayMap) {
+            @SuppressWarnings("unchecked")
+            final ArrayMap<K, V> arrayMap = (ArrayMap<K, V>) map;
+            return arrayMap;
+        }
+        return ArrayMap.<K, V>of().withAll(map);
+    }
+
+    private ArrayMap(@NotNull Object[] table) {
+        this.table = table;
+    }
+
+    private int indexOf(@Nullable Object key) {
+        for (int i = 0; i < table.length; i += 2) {
+            if (Objects.equals(table[i], key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @NotNull
+    public ArrayMap<K, V> with(@NotNull K key, @NotNull V value) {
+        final int index = indexOf(key);
+        final Object[] table;
+        if (index >= 0) {
+            if (this.table[index + 1] == value) {
+                return this;
+            }
+            table = this.table.clone();
+            table[index + 1] = value;
+        } else {
+            table = Arrays.copyOf(this.table, this.table.length + 2);
+            table[table.length - 2] = key;
+            table[table.length - 1] = value;
+        }
+        return new ArrayMap<>(table);
+    }
+
+    @NotNull
+    public ArrayMap<K, V> withAll(@NotNull Map<? extends K, ? extends V> map) {
+        ArrayMap<K, V> result = this;
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            result = result.with(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    @NotNull
+    public ArrayMap<K, V> without(@Nullable Object key) {
+        final int index = indexOf(key);
+        if (index < 0) {
+            return this;
+        }
+        if (table.length == 2) {
+            return of();
+        }
+        final Object[] table = new Object[this.table.length - 2];
+        System.arraycopy(this.table, 0, table, 0, index);
+        System.arraycopy(this.table, index + 2, table, index, table.length - index);
+        return new ArrayMap<>(table);
+    }
+
+    @Override
+    public int size() {
+        return table.length >> 1;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return table.length == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        final int index = indexOf(key);
+        return index < 0 ? null : (V) table[index + 1];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(Object key, V defaultValue) {
+        final int index = indexOf(key);
+        return index < 0 ? defaultValue : (V) table[index + 1];
+    }
+
+    @NotNull
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return ArrayMap.this.size();
+            }
+
+            @NotNull
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new Iterator<>() {
+                    private int index = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < table.length;
+                    }
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Entry<K, V> next() {
+                        if (index >= table.length) {
+                            throw new NoSuchElementException();
+                        }
+                        final Entry<K, V> entry = new SimpleImmutableEntry<>((K) table[index], (V) table[index + 1]);
+                        index += 2;
+                        return entry;
+                    }
+                };
+            }
+        };
+    }
+}
@@ -0,0 +1,167 @@
+package com.saicone.onetimepack.util;
+
+import com.saicone.onetimepack.OneTimePack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+public class BoundedExecutor implements Executor {
+
+    private final String name;
+    private final ExecutorService delegate;
+    private final boolean virtual;
+    private final int capacity;
+    // Running and queued tasks, so the same limit applies with virtual threads
+    private final Semaphore permits;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    @NotNull
+    public static BoundedExecutor of(@NotNull String name, int threads, int capacity) {
+        if (threads <= 0) {
+            final ExecutorService virtual = newVirtualExecutor();
+            if (virtual != null) {
+                return new BoundedExecutor(name, virtual, true, capacity);
+            }
+            threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        }
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory(name));
+        executor.allowCoreThreadTimeOut(true);
+        return new BoundedExecutor(name, executor, false, capacity);
+    }
+
+    @Nullable
+    private static ExecutorService newVirtualExecutor() {
+        // Java 21+
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    @NotNull
+    private static ThreadFactory threadFactory(@NotNull String name) {
+        final AtomicInteger count = new AtomicInteger();
+        return r -> {
+            final Thread thread = new Thread(r, name + " #" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public BoundedExecutor(@NotNull String name, @NotNull ExecutorService delegate, boolean virtual, int capacity) {
+        this.name = name;
+        this.delegate = delegate;
+        this.virtual = virtual;
+        this.capacity = Math.max(1, capacity);
+        this.permits = new Semaphore(this.capacity);
+    }
+
+    @NotNull
+    public String getName() {
+        return name;
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getPending() {
+        return capacity - permits.availablePermits();
+    }
+
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public boolean tryExecute(@NotNull Runnable task) {
+        if (!permits.tryAcquire()) {
+            rejected.increment();
+            return false;
+        }
+        try {
+            delegate.execute(() -> {
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    failed.increment();
+                    if (OneTimePack.isLoggable(1)) {
+                        OneTimePack.log(1, t, "Unexpected error while running task on {}", name);
+                    }
+                } finally {
+                    completed.increment();
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Executor is shut down
+            permits.release();
+            rejected.increment();
+            return false;
+        }
+        submitted.increment();
+        return true;
+    }
+
+    @Override
+    public void execute(@NotNull Runnable task) {
+        if (!tryExecute(task)) {
+            throw new RejectedExecutionException("The executor " + name + " is full or shut down");
+        }
+    }
+
+    public void shutdown(long timeout) {
+        delegate.shutdown();
+        try {
+            if (!delegate.awaitTermination(timeout, TimeUnit.MILLISECONDS)) {
+                delegate.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            delegate.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name + "{" +
+                "virtual=" + virtual +
+                ", pending=" + getPending() + "/" + capacity +
+                ", submitted=" + getSubmitted() +
+                ", completed=" + getCompleted() +
+                ", rejected=" + getRejected() +
+                ", failed=" + getFailed() +
+                '}';
+    }
+}
@@ -0,0 +1,120 @@
+package com.saicone.onetimepack.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import org.jetbrains.annotations.NotNull;
+
+public class BufferUtils {
+
+    private static final int TAG_END = 0;
+    private static final int TAG_BYTE = 1;
+    private static final int TAG_SHORT = 2;
+    private static final int TAG_INT = 3;
+    private static final int TAG_LONG = 4;
+    private static final int TAG_FLOAT = 5;
+    private static final int TAG_DOUBLE = 6;
+    private static final int TAG_BYTE_ARRAY = 7;
+    private static final int TAG_STRING = 8;
+    private static final int TAG_LIST = 9;
+    private static final int TAG_COMPOUND = 10;
+    private static final int TAG_INT_ARRAY = 11;
+    private static final int TAG_LONG_ARRAY = 12;
+
+    BufferUtils() {
+    }
+
+    @NotNull
+    public static byte[] copy(@NotNull ByteBuf buf, int start) {
+        return ByteBufUtil.getBytes(buf, start, buf.readerIndex() - start);
+    }
+
+    public static int readVarInt(@NotNull ByteBuf buf) {
+        int value = 0;
+        int position = 0;
+        byte current;
+        do {
+            current = buf.readByte();
+            value |= (current & 0x7F) << position;
+            position += 7;
+            if (position > 35) {
+                throw new IllegalArgumentException("VarInt too big");
+            }
+        } while ((current & 0x80) != 0);
+        return value;
+    }
+
+    // Skip a VarInt prefixed UTF-8 string
+    public static void skipString(@NotNull ByteBuf buf) {
+        final int length = readVarInt(buf);
+        if (length < 0) {
+            throw new IllegalArgumentException("Negative string length: " + length);
+        }
+        buf.skipBytes(length);
+    }
+
+    // Skip an unnamed (network) NBT tag, used since MC 1.20.2
+    public static void skipTag(@NotNull ByteBuf buf) {
+        final int type = buf.readUnsignedByte();
+        if (type != TAG_END) {
+            skipPayload(buf, type, 0);
+        }
+    }
+
+    private static void skipPayload(@NotNull ByteBuf buf, int type, int depth) {
+        if (depth > 512) {
+            throw new IllegalArgumentException("NBT tag is too complex");
+        }
+        switch (type) {
+            case TAG_BYTE:
+                buf.skipBytes(1);
+                break;
+            case TAG_SHORT:
+                buf.skipBytes(2);
+                break;
+            case TAG_INT:
+            case TAG_FLOAT:
+                buf.skipBytes(4);
+                break;
+            case TAG_LONG:
+            case TAG_DOUBLE:
+                buf.skipBytes(8);
+                break;
+            case TAG_BYTE_ARRAY:
+                buf.skipBytes(length(buf));
+                break;
+            case TAG_STRING:
+                buf.skipBytes(buf.readUnsignedShort());
+                break;
+            case TAG_LIST:
+                final int listType = buf.readUnsignedByte();
+                final int size = length(buf);
+                for (int i = 0; i < size; i++) {
+                    skipPayload(buf, listType, depth + 1);
+                }
+                break;
+            case TAG_COMPOUND:
+                int entryType;
+                while ((entryType = buf.readUnsignedByte()) != TAG_END) {
+                    buf.skipBytes(buf.readUnsignedShort());
+                    skipPayload(buf, entryType, depth + 1);
+                }
+                break;
+            case TAG_INT_ARRAY:
+                buf.skipBytes(length(buf) * 4);
+                break;
+            case TAG_LONG_ARRAY:
+                buf.skipBytes(length(buf) * 8);
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid NBT tag type: " + type);
+        }
+    }
+
+    private static int length(@NotNull ByteBuf buf) {
+        final int length = buf.readInt();
+        if (length < 0) {
+            throw new IllegalArgumentException("Negative NBT length: " + length);
+        }
+        return length;
+    }
+}
@@ -0,0 +1,190 @@
+package com.saicone.onetimepack.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+public final class ComparatorPlan<E> implements ValueComparator<E> {
+
+    private static final Pattern AND = Pattern.compile("(?i) (AND|&&) ");
+    private static final Pattern OR = Pattern.compile("(?i) (OR|[|][|]) ");
+
+    // Unique fields, each one is extracted only once per packet
+    private final String[] names;
+    private final ValueComparator<E>[] fields;
+    // Flat expression: (term OR term ...) AND (term OR term ...) AND ...
+    private final int[] termField;
+    private final boolean[] termNonNull;
+    private final int[] blockEnd;
+    // True if any field is used by more than one term, so packets are extracted before evaluation
+    private final boolean sharedFields;
+
+    @NotNull
+    public static <E> ValueComparator<E> compile(@NotNull String str, @NotNull Provider<E> provider) {
+        final List<String> names = new ArrayList<>();
+        final List<ValueComparator<E>> fields = new ArrayList<>();
+        final List<Integer> termField = new ArrayList<>();
+        final List<Boolean> termNonNull = new ArrayList<>();
+        final List<Integer> blockEnd = new ArrayList<>();
+        for (String block : AND.split(str.trim())) {
+            final int start = termField.size();
+            for (String term : OR.split(block.trim())) {
+                term = term.trim();
+                if (term.isEmpty()) {
+                    continue;
+                }
+                final boolean nonNull = term.charAt(0) == '!';
+                final String name = (nonNull ? term.substring(1) : term).trim().toUpperCase(Locale.ROOT);
+                int field = names.indexOf(name);
+                if (field < 0) {
+                    final ValueComparator<E> comparator = provider.readComparator(name);
+                    if (comparator == null) {
+                        continue;
+                    }
+                    field = names.size();
+                    names.add(name);
+                    fields.add(comparator);
+                }
+                termField.add(field);
+                termNonNull.add(nonNull);
+            }
+            if (termField.size() > start) {
+                blockEnd.add(termField.size());
+            }
+        }
+        if (blockEnd.isEmpty()) {
+            return e -> true;
+        }
+        return new ComparatorPlan<>(names, fields, termField, termNonNull, blockEnd);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ComparatorPlan(@NotNull List<String> names, @NotNull List<ValueComparator<E>> fields, @NotNull List<Integer> termField, @NotNull List<Boolean> termNonNull, @NotNull List<Integer> blockEnd) {
+        this.names = names.toArray(new String[0]);
+        this.fields = (ValueComparator<E>[]) fields.toArray(new ValueComparator<?>[0]);
+        this.termField = new int[termField.size()];
+        this.termNonNull = new boolean[termNonNull.size()];
+        for (int i = 0; i < this.termField.length; i++) {
+            this.termField[i] = termField.get(i);
+            this.termNonNull[i] = termNonNull.get(i);
+        }
+        this.blockEnd = new int[blockEnd.size()];
+        for (int i = 0; i < this.blockEnd.length; i++) {
+            this.blockEnd[i] = blockEnd.get(i);
+        }
+        this.sharedFields = this.termField.length > this.fields.length;
+    }
+
+    @NotNull
+    public String[] getNames() {
+        return names.clone();
+    }
+
+    @Override
+    public @Nullable Object getValue(@NotNull E e) {
+        return fields[0].getValue(e);
+    }
+
+    @Override
+    public int size() {
+        return fields.length;
+    }
+
+    @Override
+    public void extract(@NotNull E e, @NotNull Object[] values, int offset) {
+        for (int i = 0; i < fields.length; i++) {
+            values[offset + i] = fields[i].getValue(e);
+        }
+    }
+
+    @Override
+    public boolean matches(@NotNull E e1, @NotNull E e2) {
+        if (sharedFields) {
+            // Extract each field once, instead of once per term that use it
+            final Object[] values1 = new Object[fields.length];
+            final Object[] values2 = new Object[fields.length];
+            extract(e1, values1, 0);
+            extract(e2, values2, 0);
+            return matches(values1, values2, 0);
+        }
+        // Every field belongs to a single term, so it's compared in place and the evaluation can short-circuit
+        int term = 0;
+        for (int end : blockEnd) {
+            boolean matches = false;
+            for (; term < end; term++) {
+                final ValueComparator<E> field = fields[termField[term]];
+                if (matches(term, field.getValue(e1), field.getValue(e2))) {
+                    matches = true;
+                    term = end;
+                    break;
+                }
+            }
+            if (!matches) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean matches(@NotNull Object[] values1, @NotNull Object[] values2, int offset) {
+        int term = 0;
+        for (int end : blockEnd) {
+            boolean matches = false;
+            for (; term < end; term++) {
+                final int index = offset + termField[term];
+                if (matches(term, values1[index], values2[index])) {
+                    matches = true;
+                    term = end;
+                    break;
+                }
+            }
+            if (!matches) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matches(int term, @Nullable Object value1, @Nullable Object value2) {
+        if (value1 == null) {
+            // Negated terms never match on null
+            return value2 == null && !termNonNull[term];
+        }
+        return value1.equals(value2);
+    }
+
+    @Override
+    public void collectKeys(int offset, @NotNull Collection<Integer> keys) {
+        // Any match must satisfy at least one term of the first block
+        for (int term = 0; term < blockEnd[0]; term++) {
+            keys.add(offset + termField[term]);
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        int term = 0;
+        for (int i = 0; i < blockEnd.length; i++) {
+            if (i > 0) {
+                builder.append(" AND ");
+            }
+            for (int first = term; term < blockEnd[i]; term++) {
+                if (term > first) {
+                    builder.append(" OR ");
+                }
+                if (termNonNull[term]) {
+                    builder.append('!');
+                }
+                builder.append(names[termField[term]]);
+            }
+        }
+        return builder.toString();
+    }
+}
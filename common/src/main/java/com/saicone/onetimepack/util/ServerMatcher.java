@@ -0,0 +1,116 @@
+package com.saicone.onetimepack.util;
+
+import com.saicone.onetimepack.OneTimePack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+public class ServerMatcher<T> {
+
+    // Dynamic servers can be created and deleted all the time, so the memoized names are limited
+    private static final int MAX_CACHE_SIZE = 4096;
+    private static final Object NONE = new Object();
+
+    private final Map<String, T> names;
+    private final Pattern[] patterns;
+    private final List<T> values;
+    // Result by server name, NONE for names without any match
+    private final Map<String, Object> cache = new ConcurrentHashMap<>();
+
+    // Server names can be exact names, glob patterns with * and ? wildcards or regex patterns with "regex:" prefix
+    @NotNull
+    public static <T> ServerMatcher<T> of(@NotNull Map<String, T> servers) {
+        final Map<String, T> names = new HashMap<>();
+        final List<Pattern> patterns = new ArrayList<>();
+        final List<T> values = new ArrayList<>();
+        for (Map.Entry<String, T> entry : servers.entrySet()) {
+            final String server = entry.getKey();
+            final Pattern pattern;
+            try {
+                pattern = compile(server);
+            } catch (PatternSyntaxException e) {
+                OneTimePack.log(1, "The server pattern '{}' is not valid: {}", server, e.getDescription());
+                continue;
+            }
+            if (pattern == null) {
+                names.put(server, entry.getValue());
+            } else {
+                patterns.add(pattern);
+                values.add(entry.getValue());
+            }
+        }
+        return new ServerMatcher<>(Map.copyOf(names), patterns.toArray(new Pattern[0]), List.copyOf(values));
+    }
+
+    @Nullable
+    private static Pattern compile(@NotNull String server) {
+        if (server.startsWith("regex:")) {
+            return Pattern.compile(server.substring(6));
+        }
+        if (server.indexOf('*') < 0 && server.indexOf('?') < 0) {
+            return null;
+        }
+        final StringBuilder regex = new StringBuilder();
+        int start = 0;
+        for (int i = 0; i < server.length(); i++) {
+            final char c = server.charAt(i);
+            if (c == '*' || c == '?') {
+                if (i > start) {
+                    regex.append(Pattern.quote(server.substring(start, i)));
+                }
+                regex.append(c == '*' ? ".*" : ".");
+                start = i + 1;
+            }
+        }
+        if (start < server.length()) {
+            regex.append(Pattern.quote(server.substring(start)));
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    private ServerMatcher(@NotNull Map<String, T> names, @NotNull Pattern[] patterns, @NotNull List<T> values) {
+        this.names = names;
+        this.patterns = patterns;
+        this.values = values;
+    }
+
+    public boolean hasPatterns() {
+        return patterns.length > 0;
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public T get(@NotNull String server) {
+        final T value = names.get(server);
+        if (value != null || patterns.length == 0) {
+            return value;
+        }
+        Object result = cache.get(server);
+        if (result == null) {
+            result = match(server);
+            if (cache.size() >= MAX_CACHE_SIZE) {
+                cache.clear();
+            }
+            cache.put(server, result);
+        }
+        return result == NONE ? null : (T) result;
+    }
+
+    @NotNull
+    private Object match(@NotNull String server) {
+        // Same as exact names, the last declared pattern takes priority
+        for (int i = patterns.length - 1; i >= 0; i--) {
+            if (patterns[i].matcher(server).matches()) {
+                return values.get(i);
+            }
+        }
+        return NONE;
+    }
+}
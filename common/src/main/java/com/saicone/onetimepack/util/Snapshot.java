@@ -0,0 +1,197 @@
+package com.saicone.onetimepack.util;
+
+import com.saicone.onetimepack.OneTimePack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+public class Snapshot {
+
+    // Binary copy of a parsed file, it's only used while the checksum of the source files is the same
+    private static final int MAGIC = 0x4F54534E; // OTSN
+    private static final int VERSION = 1;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte BOOLEAN = 2;
+    private static final byte INT = 3;
+    private static final byte LONG = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte LIST = 6;
+    private static final byte MAP = 7;
+
+    Snapshot() {
+    }
+
+    @NotNull
+    public static File getFile(@NotNull File folder, @NotNull String fileName) {
+        return FileUtils.getFile(folder, "cache/" + fileName + ".bin");
+    }
+
+    public static long checksum(@NotNull File... files) {
+        return checksum("", files);
+    }
+
+    // Missing files are included as empty, so creating or deleting a file also changes the checksum.
+    // The key is anything else that the snapshot depends on, like the build that resolved the values
+    public static long checksum(@NotNull String key, @NotNull File... files) {
+        final CRC32C crc = new CRC32C();
+        crc.update(key.getBytes(StandardCharsets.UTF_8));
+        final byte[] buffer = new byte[8192];
+        for (File file : files) {
+            if (file == null || !file.isFile()) {
+                crc.update(0);
+                continue;
+            }
+            crc.update(1);
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    crc.update(buffer, 0, read);
+                }
+            } catch (IOException e) {
+                // Unreadable file, a snapshot can't be trusted
+                return -1L;
+            }
+        }
+        return crc.getValue();
+    }
+
+    @Nullable
+    public static <T> T read(@NotNull File file, long checksum, @NotNull Input<T> input) {
+        if (checksum < 0 || !file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != checksum) {
+                return null;
+            }
+            return input.read(in);
+        } catch (IOException | RuntimeException e) {
+            OneTimePack.log(2, "Cannot read snapshot file {}: {}", file.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    public static void write(@NotNull File file, long checksum, @NotNull Output output) {
+        if (checksum < 0) {
+            return;
+        }
+        final Path path = file.toPath();
+        final Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(path.getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(checksum);
+                output.write(out);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            OneTimePack.log(2, "Cannot write snapshot file {}: {}", file.getName(), e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) { }
+        }
+    }
+
+    // Values from settings files: maps, lists and scalars
+    public static void writeValue(@NotNull DataOutput out, @Nullable Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof List<?> list) {
+            out.writeByte(LIST);
+            out.writeInt(list.size());
+            for (Object element : list) {
+                writeValue(out, element);
+            }
+        } else if (value instanceof Map<?, ?> map) {
+            out.writeByte(MAP);
+            out.writeInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                out.writeUTF(String.valueOf(entry.getKey()));
+                writeValue(out, entry.getValue());
+            }
+        } else {
+            out.writeByte(STRING);
+            out.writeUTF(String.valueOf(value));
+        }
+    }
+
+    @Nullable
+    public static Object readValue(@NotNull DataInput in) throws IOException {
+        final byte type = in.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case STRING:
+                return in.readUTF();
+            case BOOLEAN:
+                return in.readBoolean();
+            case INT:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case DOUBLE:
+                return in.readDouble();
+            case LIST:
+                final int listSize = in.readInt();
+                final List<Object> list = new ArrayList<>(listSize);
+                for (int i = 0; i < listSize; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            case MAP:
+                final int mapSize = in.readInt();
+                final Map<String, Object> map = new LinkedHashMap<>();
+                for (int i = 0; i < mapSize; i++) {
+                    map.put(in.readUTF(), readValue(in));
+                }
+                return map;
+            default:
+                throw new IOException("Invalid value type: " + type);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Input<T> {
+        @NotNull
+        T read(@NotNull DataInput in) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface Output {
+        void write(@NotNull DataOutput out) throws IOException;
+    }
+}
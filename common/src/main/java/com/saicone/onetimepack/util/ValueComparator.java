@@ -3,6 +3,7 @@ package com.saicone.onetimepack.util;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collection;
 import java.util.Objects;
 
 @FunctionalInterface
@@ -10,31 +11,7 @@ public interface ValueComparator<E> {
 
     @NotNull
     static <E> ValueComparator<E> read(@NotNull String str, @NotNull Provider<E> provider) {
-        ValueComparator<E> result = null;
-        for (String block : str.split("(?i) (AND|&&) ")) {
-            ValueComparator<E> append = null;
-            if (block.contains(" OR ")) {
-                for (String optional : block.split("(?i) (OR|[|][|]) ")) {
-                    final ValueComparator<E> comparator = provider.readComparator(optional);
-                    if (append == null) {
-                        append = comparator;
-                    } else if (comparator != null) {
-                        append = append.or(comparator);
-                    }
-                }
-            } else {
-                append = provider.readComparator(block);
-            }
-
-            if (append != null) {
-                if (result == null) {
-                    result = append;
-                } else {
-                    result = result.and(append);
-                }
-            }
-        }
-        return result != null ? result : e -> true;
+        return ComparatorPlan.compile(str, provider);
     }
 
     @Nullable
@@ -44,6 +21,37 @@ public interface ValueComparator<E> {
         return Objects.equals(getValue(e1), getValue(e2));
     }
 
+    // Fingerprint support, every comparator use a fixed amount of values
+    // that can be extracted once and compared as many times as needed
+
+    default int size() {
+        return 1;
+    }
+
+    @NotNull
+    default Object[] extract(@NotNull E e) {
+        final Object[] values = new Object[size()];
+        extract(e, values, 0);
+        return values;
+    }
+
+    default void extract(@NotNull E e, @NotNull Object[] values, int offset) {
+        values[offset] = getValue(e);
+    }
+
+    default boolean matches(@NotNull Object[] values1, @NotNull Object[] values2) {
+        return matches(values1, values2, 0);
+    }
+
+    default boolean matches(@NotNull Object[] values1, @NotNull Object[] values2, int offset) {
+        return Objects.equals(values1[offset], values2[offset]);
+    }
+
+    // Collect the value positions that any matching fingerprint must share
+    default void collectKeys(int offset, @NotNull Collection<Integer> keys) {
+        keys.add(offset);
+    }
+
     @NotNull
     default ValueComparator<E> nonNull() {
         return new ValueComparator<E>() {
@@ -60,6 +68,15 @@ public interface ValueComparator<E> {
                 if (value2 == null) return false;
                 return value1.equals(value2);
             }
+
+            @Override
+            public boolean matches(@NotNull Object[] values1, @NotNull Object[] values2, int offset) {
+                final Object value1 = values1[offset];
+                if (value1 == null) return false;
+                final Object value2 = values2[offset];
+                if (value2 == null) return false;
+                return value1.equals(value2);
+            }
         };
     }
 
@@ -75,6 +92,27 @@ public interface ValueComparator<E> {
             public boolean matches(@NotNull E e1, @NotNull E e2) {
                 return ValueComparator.this.matches(e1, e2) && comparator.matches(e1, e2);
             }
+
+            @Override
+            public int size() {
+                return ValueComparator.this.size() + comparator.size();
+            }
+
+            @Override
+            public void extract(@NotNull E e, @NotNull Object[] values, int offset) {
+                ValueComparator.this.extract(e, values, offset);
+                comparator.extract(e, values, offset + ValueComparator.this.size());
+            }
+
+            @Override
+            public boolean matches(@NotNull Object[] values1, @NotNull Object[] values2, int offset) {
+                return ValueComparator.this.matches(values1, values2, offset) && comparator.matches(values1, values2, offset + ValueComparator.this.size());
+            }
+
+            @Override
+            public void collectKeys(int offset, @NotNull Collection<Integer> keys) {
+                ValueComparator.this.collectKeys(offset, keys);
+            }
         };
     }
 
@@ -90,6 +128,28 @@ public interface ValueComparator<E> {
             public boolean matches(@NotNull E e1, @NotNull E e2) {
                 return ValueComparator.this.matches(e1, e2) || comparator.matches(e1, e2);
             }
+
+            @Override
+            public int size() {
+                return ValueComparator.this.size() + comparator.size();
+            }
+
+            @Override
+            public void extract(@NotNull E e, @NotNull Object[] values, int offset) {
+                ValueComparator.this.extract(e, values, offset);
+                comparator.extract(e, values, offset + ValueComparator.this.size());
+            }
+
+            @Override
+            public boolean matches(@NotNull Object[] values1, @NotNull Object[] values2, int offset) {
+                return ValueComparator.this.matches(values1, values2, offset) || comparator.matches(values1, values2, offset + ValueComparator.this.size());
+            }
+
+            @Override
+            public void collectKeys(int offset, @NotNull Collection<Integer> keys) {
+                ValueComparator.this.collectKeys(offset, keys);
+                comparator.collectKeys(offset + ValueComparator.this.size(), keys);
+            }
         };
     }
 
@@ -7,7 +7,9 @@ import com.saicone.onetimepack.core.packet.ResourcePackStatus;
 import com.saicone.onetimepack.module.Mappings;
 import com.saicone.onetimepack.util.ProtocolVersion;
 import com.saicone.onetimepack.util.ValueComparator;
+import net.md_5.bungee.UserConnection;
 import net.md_5.bungee.api.connection.ProxiedPlayer;
+import net.md_5.bungee.api.connection.Server;
 import net.md_5.bungee.connection.CancelSendSignal;
 import net.md_5.bungee.connection.DownstreamBridge;
 import net.md_5.bungee.connection.UpstreamBridge;
@@ -23,6 +25,7 @@ import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -95,21 +98,21 @@ public class BungeeProcessor extends Processor<ProxiedPlayer, ResourcePackPush,
 
     protected void onLoad(@NotNull String name, @NotNull Class<? extends DefinedPacket> clazz, @NotNull Supplier<? extends DefinedPacket> constructor, boolean clientbound) {
         if (!mappings.contains(name)) {
-            OneTimePack.log(1, "Cannot find mappings for " + clazz.getName() + " this will cause the plugin to not work correctly");
+            OneTimePack.log(1, "Cannot find mappings for {} this will cause the plugin to not work correctly", clazz.getName());
             return;
         }
 
         try {
-            final List<IntRangeEntry<Integer>> play = mappings.getMappings(name, "play");
+            final Mappings.IdTable play = mappings.getTable(name, ProtocolState.PLAY);
             if (play == null) {
-                OneTimePack.log(1, "Cannot find PLAY mappings for " + clazz.getName() + " this will cause the plugin to not work correctly");
+                OneTimePack.log(1, "Cannot find PLAY mappings for {} this will cause the plugin to not work correctly", clazz.getName());
             } else {
                 onLoad(play, clientbound ? Protocol.GAME.TO_CLIENT : Protocol.GAME.TO_SERVER, clazz, constructor);
             }
 
-            final List<IntRangeEntry<Integer>> configuration = mappings.getMappings(name, "configuration");
+            final Mappings.IdTable configuration = mappings.getTable(name, ProtocolState.CONFIGURATION);
             if (configuration == null) {
-                OneTimePack.log(1, "Cannot find CONFIGURATION mappings for " + clazz.getName() + " this will cause the plugin to not work correctly");
+                OneTimePack.log(1, "Cannot find CONFIGURATION mappings for {} this will cause the plugin to not work correctly", clazz.getName());
             } else {
                 onLoad(configuration, clientbound ? Protocol.CONFIGURATION.TO_CLIENT : Protocol.CONFIGURATION.TO_SERVER, clazz, constructor);
             }
@@ -118,15 +121,17 @@ public class BungeeProcessor extends Processor<ProxiedPlayer, ResourcePackPush,
         }
     }
 
-    protected void onLoad(@NotNull List<IntRangeEntry<Integer>> entries, @NotNull Protocol.DirectionData direction, @NotNull Class<? extends DefinedPacket> clazz, @NotNull Supplier<? extends DefinedPacket> constructor) throws Throwable {
-        final Object[] args = new Object[entries.size() + 3];
+    protected void onLoad(@NotNull Mappings.IdTable table, @NotNull Protocol.DirectionData direction, @NotNull Class<? extends DefinedPacket> clazz, @NotNull Supplier<? extends DefinedPacket> constructor) throws Throwable {
+        // Bungeecord only needs the first protocol of every range with the same packet id
+        final List<int[]> ranges = new ArrayList<>();
+        table.forEachRange((start, end, id) -> ranges.add(new int[] { start, id }));
+        final Object[] args = new Object[ranges.size() + 3];
         args[0] = direction;
         args[1] = clazz;
         args[2] = constructor;
         int index = 3;
-        for (IntRangeEntry<Integer> range : entries) {
-            final int protocol = range.getMin();
-            args[index] = NEW_PROTOCOL_MAPPING.invoke(protocol, range.getValue());
+        for (int[] range : ranges) {
+            args[index] = NEW_PROTOCOL_MAPPING.invoke(range[0], range[1]);
             index++;
         }
 
@@ -137,17 +142,15 @@ public class BungeeProcessor extends Processor<ProxiedPlayer, ResourcePackPush,
         final ProxiedPlayer player = getPlayer(handler);
         if (player == null) return;
 
-        final Optional<PackResult> optional = onPackPush(player, state(packet.getProtocol()), packet, packet.getUniqueId(), packet.getHash());
+        final ProtocolState state = state(packet.getProtocol());
+        final Optional<PackResult> optional = onPackPush(player, state, packet, packet.getUniqueId(), packet.getDescriptor().getPackHash());
         if (optional == null) return;
 
         final PackResult result = optional.orElse(null);
-        if (result == null) {
-            throw CancelSendSignal.INSTANCE;
+        if (result != null) {
+            sendResult(player, state, packet, result);
         }
 
-        player.getServer().unsafe().sendPacket(packet.asStatus(result, player.getPendingConnection().getVersion()));
-        OneTimePack.log(4, () -> "Sent cached result " + result.name() + " from user " + player.getUniqueId());
-
         throw CancelSendSignal.INSTANCE;
     }
 
@@ -192,7 +195,7 @@ public class BungeeProcessor extends Processor<ProxiedPlayer, ResourcePackPush,
                 throw new RuntimeException(t);
             }
         } else {
-            OneTimePack.log(2, "Received packed on invalid handler: " + handler.getClass());
+            OneTimePack.log(2, "Received packed on invalid handler: {}", handler.getClass());
             return null;
         }
     }
@@ -207,8 +210,8 @@ public class BungeeProcessor extends Processor<ProxiedPlayer, ResourcePackPush,
         return switch (name) {
             case "UUID" -> ResourcePackPush::getUniqueId;
             case "URL" -> ResourcePackPush::getUrl;
-            case "HASH" -> ResourcePackPush::getHash;
-            case "PROMPT" -> pack -> pack.getPrompt() == null ? null : pack.getJsonPrompt();
+            case "HASH" -> pack -> pack.getDescriptor().getPackHash();
+            case "PROMPT" -> ResourcePackPush::getJsonPrompt;
             case "ALL" -> pack -> pack;
             case "ANY" -> pack -> true;
             default -> null;
@@ -220,6 +223,23 @@ public class BungeeProcessor extends Processor<ProxiedPlayer, ResourcePackPush,
         user.unsafe().sendPacket(new ResourcePackPop(false, null));
     }
 
+    @Override
+    protected @Nullable ProtocolState getState(@NotNull ProxiedPlayer user) {
+        if (user instanceof UserConnection) {
+            return state(((UserConnection) user).getCh().getEncodeProtocol());
+        }
+        return null;
+    }
+
+    @Override
+    public void sendResult(@NotNull ProxiedPlayer user, @NotNull ProtocolState state, @NotNull ResourcePackPush packet, @NotNull PackResult result) {
+        final Server server = user.getServer();
+        if (server == null) return;
+
+        server.unsafe().sendPacket(packet.asStatus(result, user.getPendingConnection().getVersion()));
+        OneTimePack.log(4, "Sent cached result {} from user {}", result.name(), user.getUniqueId());
+    }
+
     public static final class IntRangeEntry<T> implements Iterable<Integer> {
 
         private final int min;
@@ -4,8 +4,11 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.saicone.onetimepack.OneTimePack;
 import com.saicone.onetimepack.core.BungeeProcessor;
+import com.saicone.onetimepack.core.PackDescriptor;
 import com.saicone.onetimepack.core.PackResult;
+import com.saicone.onetimepack.util.BufferUtils;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import net.md_5.bungee.api.chat.BaseComponent;
 import net.md_5.bungee.protocol.AbstractPacketHandler;
 import net.md_5.bungee.protocol.ChatSerializer;
@@ -16,6 +19,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.UUID;
 
@@ -24,13 +28,16 @@ public class ResourcePackPush extends DefinedPacket {
     public static final int MAX_HASH_LENGTH = 40;
 
     private UUID uniqueId; // Added in 1.20.3
-    private String url;
-    private String hash;
+    // Shared url and hash
+    private PackDescriptor descriptor = PackDescriptor.EMPTY;
 
     // Added in 1.17
     private boolean forced;
     private boolean hasPromptMessage;
     private BaseComponent prompt;
+    // Encoded prompt from read(), it's only decoded if needed
+    private byte[] rawPrompt;
+    private int rawPromptVersion;
 
     private transient Protocol protocol;
 
@@ -39,14 +46,12 @@ public class ResourcePackPush extends DefinedPacket {
 
     @Deprecated(since = "1.17")
     public ResourcePackPush(@Nullable String url, @Nullable String hash) {
-        this.url = url;
-        this.hash = hash;
+        this.descriptor = PackDescriptor.of(url, hash);
     }
 
     @Deprecated(since = "1.20.3")
     public ResourcePackPush(@Nullable String url, @Nullable String hash, boolean forced, boolean hasPromptMessage, @Nullable BaseComponent prompt) {
-        this.url = url;
-        this.hash = hash;
+        this.descriptor = PackDescriptor.of(url, hash);
         this.forced = forced;
         this.hasPromptMessage = hasPromptMessage;
         this.prompt = prompt;
@@ -54,15 +59,13 @@ public class ResourcePackPush extends DefinedPacket {
 
     public ResourcePackPush(@Nullable UUID uniqueId, @Nullable String url, @Nullable String hash, boolean forced) {
         this.uniqueId = uniqueId;
-        this.url = url;
-        this.hash = hash;
+        this.descriptor = PackDescriptor.of(url, hash);
         this.forced = forced;
     }
 
     public ResourcePackPush(@Nullable UUID uniqueId, @Nullable String url, @Nullable String hash, boolean forced, boolean hasPromptMessage, @Nullable BaseComponent prompt) {
         this.uniqueId = uniqueId;
-        this.url = url;
-        this.hash = hash;
+        this.descriptor = PackDescriptor.of(url, hash);
         this.forced = forced;
         this.hasPromptMessage = hasPromptMessage;
         this.prompt = prompt;
@@ -83,21 +86,30 @@ public class ResourcePackPush extends DefinedPacket {
 
     @Nullable
     public String getUrl() {
-        return url;
+        return descriptor.getUrl();
     }
 
     @Nullable
     public String getHash() {
-        return hash;
+        return descriptor.getHash();
+    }
+
+    @NotNull
+    public PackDescriptor getDescriptor() {
+        return descriptor;
     }
 
     @Nullable
     public BaseComponent getPrompt() {
+        if (prompt == null && rawPrompt != null) {
+            prompt = readBaseComponent(Unpooled.wrappedBuffer(rawPrompt), rawPromptVersion);
+        }
         return prompt;
     }
 
     @Nullable
     public JsonElement getJsonPrompt() {
+        final BaseComponent prompt = getPrompt();
         if (prompt == null) {
             return null;
         }
@@ -133,11 +145,15 @@ public class ResourcePackPush extends DefinedPacket {
     }
 
     public void setUrl(@Nullable String url) {
-        this.url = url;
+        this.descriptor = descriptor.withUrl(url);
     }
 
     public void setHash(@Nullable String hash) {
-        this.hash = hash;
+        this.descriptor = descriptor.withHash(hash);
+    }
+
+    public void setDescriptor(@NotNull PackDescriptor descriptor) {
+        this.descriptor = descriptor;
     }
 
     public void setForced(boolean forced) {
@@ -151,6 +167,7 @@ public class ResourcePackPush extends DefinedPacket {
     public void setPrompt(@Nullable BaseComponent prompt) {
         this.hasPromptMessage = prompt != null;
         this.prompt = prompt;
+        this.rawPrompt = null;
     }
 
     @Override
@@ -167,13 +184,21 @@ public class ResourcePackPush extends DefinedPacket {
         if (protocolVersion >= ProtocolConstants.MINECRAFT_1_20_3) {
             uniqueId = readUUID(buf);
         }
-        url = readString(buf);
-        hash = readString(buf, MAX_HASH_LENGTH);
+        descriptor = PackDescriptor.of(readString(buf), readString(buf, MAX_HASH_LENGTH));
         if (protocolVersion >= ProtocolConstants.MINECRAFT_1_17) {
             forced = buf.readBoolean();
             hasPromptMessage = buf.readBoolean();
+            prompt = null;
+            rawPrompt = null;
             if (hasPromptMessage) {
-                prompt = readBaseComponent(buf, protocolVersion);
+                final int start = buf.readerIndex();
+                if (protocolVersion >= ProtocolConstants.MINECRAFT_1_20_3) {
+                    BufferUtils.skipTag(buf);
+                } else {
+                    BufferUtils.skipString(buf);
+                }
+                rawPrompt = BufferUtils.copy(buf, start);
+                rawPromptVersion = protocolVersion;
             }
         } else {
             forced = false;
@@ -188,13 +213,18 @@ public class ResourcePackPush extends DefinedPacket {
         if (protocolVersion >= ProtocolConstants.MINECRAFT_1_20_3) {
             writeUUID(uniqueId, buf);
         }
-        writeString(url, buf);
-        writeString(hash, buf);
+        writeString(descriptor.getUrl(), buf);
+        writeString(descriptor.getHash(), buf);
         if (protocolVersion >= ProtocolConstants.MINECRAFT_1_17) {
             buf.writeBoolean(forced);
             buf.writeBoolean(hasPromptMessage);
             if (hasPromptMessage) {
-                writeBaseComponent(prompt, buf, protocolVersion);
+                if (rawPrompt != null && rawPromptVersion == protocolVersion) {
+                    // Unmodified prompt with the same encoding
+                    buf.writeBytes(rawPrompt);
+                } else {
+                    writeBaseComponent(getPrompt(), buf, protocolVersion);
+                }
             }
         }
     }
@@ -209,19 +239,18 @@ public class ResourcePackPush extends DefinedPacket {
         if (forced != that.forced) return false;
         if (hasPromptMessage != that.hasPromptMessage) return false;
         if (!Objects.equals(uniqueId, that.uniqueId)) return false;
-        if (!Objects.equals(url, that.url)) return false;
-        if (!Objects.equals(hash, that.hash)) return false;
-        return Objects.equals(prompt, that.prompt);
+        if (!descriptor.equals(that.descriptor)) return false;
+        if (rawPrompt != null && that.rawPrompt != null && rawPromptVersion == that.rawPromptVersion && Arrays.equals(rawPrompt, that.rawPrompt)) return true;
+        return Objects.equals(getPrompt(), that.getPrompt());
     }
 
     @Override
     public int hashCode() {
         int result = uniqueId != null ? uniqueId.hashCode() : 0;
-        result = 31 * result + (url != null ? url.hashCode() : 0);
-        result = 31 * result + (hash != null ? hash.hashCode() : 0);
+        result = 31 * result + descriptor.hashCode();
         result = 31 * result + (forced ? 1 : 0);
+        // Prompt is not included, so it's not decoded just to be hashed
         result = 31 * result + (hasPromptMessage ? 1 : 0);
-        result = 31 * result + (prompt != null ? prompt.hashCode() : 0);
         return result;
     }
 
@@ -229,11 +258,11 @@ public class ResourcePackPush extends DefinedPacket {
     public String toString() {
         return "ClientboundResourcePackPushPacket{" +
                 (uniqueId != null ? "uniqueId='" + uniqueId + "', " : "") +
-                "url='" + url + '\'' +
-                ", hash='" + hash + '\'' +
+                "url='" + descriptor.getUrl() + '\'' +
+                ", hash='" + descriptor.getHash() + '\'' +
                 ", forced=" + forced +
                 ", hasPromptMessage=" + hasPromptMessage +
-                (hasPromptMessage ? ", promptMessage='" + prompt + '\'' : "") +
+                (hasPromptMessage ? ", promptMessage='" + getPrompt() + '\'' : "") +
                 '}';
     }
 
@@ -241,12 +270,12 @@ public class ResourcePackPush extends DefinedPacket {
     @SuppressWarnings("deprecation")
     public ResourcePackStatus asStatus(@NotNull PackResult result, int protocolVersion) {
         if (protocolVersion >= ProtocolConstants.MINECRAFT_1_20_3) {
-            final UUID id = uniqueId != null ? uniqueId : UUID.nameUUIDFromBytes(url.getBytes(StandardCharsets.UTF_8));
+            final UUID id = uniqueId != null ? uniqueId : UUID.nameUUIDFromBytes(descriptor.getUrl().getBytes(StandardCharsets.UTF_8));
             return new ResourcePackStatus(id, result);
         } else if (protocolVersion >= ProtocolConstants.MINECRAFT_1_10) {
             return new ResourcePackStatus(result);
         } else {
-            return new ResourcePackStatus(hash, result);
+            return new ResourcePackStatus(descriptor.getHash(), result);
         }
     }
 }
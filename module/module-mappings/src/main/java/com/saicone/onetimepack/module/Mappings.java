@@ -1,18 +1,39 @@
 package com.saicone.onetimepack.module;
 
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.saicone.onetimepack.OneTimePack;
+import com.saicone.onetimepack.core.ProtocolState;
 import com.saicone.onetimepack.util.FileUtils;
 import com.saicone.onetimepack.util.ProtocolVersion;
+import com.saicone.onetimepack.util.Snapshot;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 
 public class Mappings<T> {
 
@@ -20,7 +41,15 @@ public class Mappings<T> {
     private final String fileName;
     private final Supplier<T> supplier;
 
-    private Map<String, Map<String, List<T>>> loaded = new HashMap<>();
+    private static final ProtocolState[] STATES = ProtocolState.values();
+    // A bigger range is not a real protocol range
+    private static final int MAX_TABLE_SIZE = 1 << 16;
+    private static final int DEFAULT_TIMEOUT = 5000;
+
+    // Packet ids compiled by name and protocol state ordinal
+    private Map<String, IdTable[]> loaded = new HashMap<>();
+    // Download of mappings from url, completed with true if the cached file was updated
+    private volatile CompletableFuture<Boolean> refresh = CompletableFuture.completedFuture(false);
 
     public Mappings(@NotNull File folder, @NotNull String fileName, @NotNull Supplier<T> supplier) {
         this.folder = folder;
@@ -43,13 +72,51 @@ public class Mappings<T> {
         return supplier;
     }
 
+    @Nullable
+    public IdTable getTable(@NotNull String name, @NotNull ProtocolState state) {
+        final IdTable[] tables = loaded.get(name);
+        return tables == null ? null : tables[state.ordinal()];
+    }
+
     @Nullable
     public List<T> getMappings(@NotNull String name, @NotNull String protocol) {
-        if (loaded.containsKey(name)) {
-            return loaded.get(name).get(protocol);
-        } else {
+        final ProtocolState state = ProtocolState.of(protocol);
+        return state == null ? null : getMappings(name, state);
+    }
+
+    @Nullable
+    public List<T> getMappings(@NotNull String name, @NotNull ProtocolState state) {
+        final IdTable table = getTable(name, state);
+        if (table == null) {
             return null;
         }
+        final List<T> list = new ArrayList<>();
+        table.forEachRange((start, end, id) -> list.add(supplier.get(start, end, id)));
+        return list;
+    }
+
+    // Version names are resolved into protocol numbers, so the snapshot is only valid for the same plugin build and protocols
+    @NotNull
+    private static String getSnapshotKey() {
+        final StringBuilder builder = new StringBuilder();
+        try {
+            final File jar = new File(Mappings.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            builder.append(jar.length()).append(':').append(jar.lastModified());
+        } catch (Throwable ignored) { }
+        for (Map.Entry<String, Integer> entry : new TreeMap<>(ProtocolVersion.getProtocols()).entrySet()) {
+            builder.append(';').append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        return builder.toString();
+    }
+
+    @NotNull
+    public File getCacheFile() {
+        return FileUtils.getFile(folder, "cache/" + fileName);
+    }
+
+    @NotNull
+    public CompletableFuture<Boolean> getRefresh() {
+        return refresh;
     }
 
     public boolean contains(@NotNull String name) {
@@ -57,86 +124,146 @@ public class Mappings<T> {
     }
 
     public void load() {
-        // Load mappings file
-        final JsonObject jsonFile = loadPluginFile();
-        if (jsonFile == null) {
+        final File file = FileUtils.saveResource(folder, fileName, false);
+        if (file == null) {
+            OneTimePack.log(1, "Cannot load {} file from plugin JAR", fileName);
             OneTimePack.log(1, "Build-in mappings will be used by default");
             loaded = new HashMap<>();
             return;
         }
 
-        // Check external
-        final JsonObject external = jsonFile.getAsJsonObject("external");
-        if (external == null || !external.get("enabled").getAsBoolean()) {
-            OneTimePack.log(3, "Mappings from " + fileName + " file will be used");
-            loaded = load(jsonFile);
-            return;
+        // Resolved mappings are saved as binary snapshot, so json files are only parsed again when any of them is changed
+        final File snapshot = Snapshot.getFile(folder, fileName);
+        final long checksum = Snapshot.checksum(getSnapshotKey(), file, getCacheFile(), getCacheMetaFile());
+        Source source = Snapshot.read(snapshot, checksum, this::readSnapshot);
+        if (source != null) {
+            OneTimePack.log(3, "Mappings from {} snapshot will be used", fileName);
+        } else {
+            source = resolve(file);
+            if (source == null) {
+                OneTimePack.log(1, "Build-in mappings will be used by default");
+                loaded = new HashMap<>();
+                return;
+            }
+            final Source resolved = source;
+            Snapshot.write(snapshot, checksum, out -> writeSnapshot(out, resolved));
         }
+        loaded = source.tables;
 
-        // Load mappings from url
-        final JsonObject jsonUrl = loadUrlFile(external.get("url").getAsString());
-        if (jsonUrl == null) {
-            OneTimePack.log(1, "Mappings from " + fileName + " file will be used instead");
-            loaded = load(jsonFile);
-            return;
+        // Packets are registered on load, so the proxy startup must not wait for the network:
+        // the last downloaded mappings are used now and the url is checked in background for the next load
+        if (source.external && source.url != null && !source.url.isBlank()) {
+            refresh(source.url, source.cached ? loadCacheMeta(source.url) : null, source.timeout);
         }
-        OneTimePack.log(3, "Mappings from url will be used");
-        loaded = load(jsonUrl);
     }
 
+    public void load(@NotNull Reader reader) throws IOException {
+        loaded = read(reader).tables;
+    }
+
+    // Mappings are read as a stream, so the file is never loaded as a whole string or json tree
     @NotNull
-    private Map<String, Map<String, List<T>>> load(@NotNull JsonObject json) {
-        final Map<String, Map<String, List<T>>> loaded = new HashMap<>();
-        for (String s : json.keySet()) {
-            final String key = s.trim().toLowerCase();
-            if (!key.startsWith("packet")) {
-                continue;
-            }
-            final Map<String, List<T>> mappings = loadMappings(json.getAsJsonObject(s));
-            if (mappings == null || mappings.isEmpty()) {
-                OneTimePack.log(1, "The provided json file doesn't contains mappings on '" + s + "' configuration");
-                continue;
-            }
-            final String[] split = key.split("-", 2);
-            final String protocol = split.length > 1 ? split[1] : "play";
-            for (Map.Entry<String, List<T>> entry : mappings.entrySet()) {
-                loaded.computeIfAbsent(entry.getKey(), __ -> new HashMap<>()).put(protocol, entry.getValue());
+    private Source read(@NotNull Reader reader) throws IOException {
+        final Source source = new Source();
+        try (JsonReader json = new JsonReader(reader)) {
+            json.beginObject();
+            while (json.hasNext()) {
+                final String s = json.nextName();
+                final String key = s.trim().toLowerCase();
+                if (json.peek() != JsonToken.BEGIN_OBJECT) {
+                    json.skipValue();
+                } else if (key.equals("external")) {
+                    readExternal(json, source);
+                } else if (key.startsWith("packet")) {
+                    final String[] split = key.split("-", 2);
+                    final ProtocolState state = ProtocolState.of(split.length > 1 ? split[1] : "play");
+                    if (state == null) {
+                        OneTimePack.log(1, "The configuration '{}' doesn't have a valid protocol state", s);
+                        json.skipValue();
+                        continue;
+                    }
+                    final Map<String, IdTable> mappings = readMappings(json);
+                    if (mappings.isEmpty()) {
+                        OneTimePack.log(1, "The provided json file doesn't contains mappings on '{}' configuration", s);
+                        continue;
+                    }
+                    for (Map.Entry<String, IdTable> entry : mappings.entrySet()) {
+                        source.tables.computeIfAbsent(entry.getKey(), __ -> new IdTable[STATES.length])[state.ordinal()] = entry.getValue();
+                    }
+                } else {
+                    json.skipValue();
+                }
             }
+            json.endObject();
         }
-        return loaded;
+        return source;
     }
 
-    @Nullable
-    private Map<String, List<T>> loadMappings(@Nullable JsonObject packets) {
-        if (packets == null) {
-            return null;
+    private void readExternal(@NotNull JsonReader json, @NotNull Source source) throws IOException {
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "enabled":
+                    source.external = json.nextBoolean();
+                    break;
+                case "url":
+                    source.url = json.nextString();
+                    break;
+                case "timeout":
+                    source.timeout = json.nextInt();
+                    break;
+                default:
+                    json.skipValue();
+                    break;
+            }
         }
-        final Map<String, List<T>> mappings = new HashMap<>();
-        for (String name : packets.keySet()) {
-            final JsonObject packet = packets.getAsJsonObject(name);
-            final List<T> list = new ArrayList<>();
-            for (String s : packet.keySet()) {
+        json.endObject();
+    }
+
+    @NotNull
+    private Map<String, IdTable> readMappings(@NotNull JsonReader json) throws IOException {
+        final Map<String, IdTable> mappings = new HashMap<>();
+        json.beginObject();
+        while (json.hasNext()) {
+            final String name = json.nextName();
+            final List<int[]> list = new ArrayList<>();
+            json.beginObject();
+            while (json.hasNext()) {
+                final String s = json.nextName();
+                final int id = json.nextInt();
                 for (String ver : s.split("\\|")) {
                     String[] version = ver.split("-");
                     int start = ProtocolVersion.getProtocol(version.length >= 1 ? version[0] : s);
                     int end = version.length >= 2 ? ProtocolVersion.getProtocol(version[1]) : start;
-                    if (start < 0 || end < 0) {
-                        OneTimePack.log(1, "The parameter '" + ver + "' inside '" + s + "' is not a valid version range for " + name + " packet, so will be ignored");
+                    if (start < 0 || end < start) {
+                        OneTimePack.log(1, "The parameter '{}' inside '{}' is not a valid version range for {} packet, so will be ignored", ver, s, name);
+                        continue;
+                    }
+                    if (end - start >= MAX_TABLE_SIZE) {
+                        if (OneTimePack.isLoggable(1)) {
+                            OneTimePack.log(1, "The version range '{}' of {} packet covers more than {} protocols, so will be ignored", ver, name, MAX_TABLE_SIZE);
+                        }
                         continue;
                     }
 
-                    int id = packet.get(s).getAsInt();
-                    list.add(supplier.get(start, end, id));
-                    OneTimePack.log(3, "Added ranged mapping for " + name + ": " + start + ',' + end + ',' + id);
+                    list.add(new int[] { start, end, id });
+                    // More than three arguments, the array is only created when enabled
+                    if (OneTimePack.isLoggable(3)) {
+                        OneTimePack.log(3, "Added ranged mapping for {}: {},{},{}", name, start, end, id);
+                    }
                 }
             }
+            json.endObject();
             if (list.isEmpty()) {
-                OneTimePack.log(2, "The packet '" + name + "' has empty mappings");
+                OneTimePack.log(2, "The packet '{}' has empty mappings", name);
             } else {
-                OneTimePack.log(3, "Loaded " + list.size() + " mappings for " + name + " packet");
+                if (OneTimePack.isLoggable(3)) {
+                    OneTimePack.log(3, "Loaded {} mappings for {} packet", list.size(), name);
+                }
             }
-            mappings.put(name, list);
+            mappings.put(name, IdTable.of(name, list));
         }
+        json.endObject();
         if (mappings.isEmpty()) {
             OneTimePack.log(2, "The provided json file doesn't have any mapping");
         }
@@ -144,46 +271,246 @@ public class Mappings<T> {
     }
 
     @Nullable
-    private JsonObject loadPluginFile() {
-        final File file = FileUtils.saveResource(folder, fileName, false);
-        if (file != null) {
-            final String lines = FileUtils.readFromFile(file);
-            if (lines != null) {
-                if (!lines.trim().isEmpty()) {
-                    return JsonParser.parseString(lines).getAsJsonObject();
-                } else {
-                    OneTimePack.log(1, "The file " + fileName + " is empty");
+    private Source readFile(@NotNull File file) {
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            return read(reader);
+        } catch (IOException | RuntimeException e) {
+            OneTimePack.log(1, "Cannot read {} file: {}", file.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    @Nullable
+    private Source resolve(@NotNull File file) {
+        // Load mappings file
+        if (file.length() <= 0) {
+            OneTimePack.log(1, "The file {} is empty", fileName);
+            return null;
+        }
+        final Source source = readFile(file);
+        if (source == null) {
+            return null;
+        }
+
+        // Check external
+        if (!source.external) {
+            OneTimePack.log(3, "Mappings from {} file will be used", fileName);
+            return source;
+        }
+
+        final String url = source.url;
+        if (url == null || url.isBlank()) {
+            OneTimePack.log(1, "The file {} doesn't have any configured URL, so mappings from file will be used instead", fileName);
+            return source;
+        }
+
+        final Properties meta = loadCacheMeta(url);
+        final Source cached = meta == null ? null : loadCacheFile();
+        if (cached != null) {
+            OneTimePack.log(3, "Mappings from url will be used (cached)");
+            source.cached = true;
+            source.tables = cached.tables;
+        } else {
+            OneTimePack.log(3, "Mappings from {} file will be used until mappings from url are downloaded", fileName);
+        }
+        return source;
+    }
+
+    private void refresh(@NotNull String url, @Nullable Properties meta, int timeout) {
+        if (!refresh.isDone()) {
+            OneTimePack.log(4, "Mappings from url are already being downloaded");
+            return;
+        }
+        final HttpRequest.Builder builder;
+        try {
+            builder = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofMillis(timeout)).GET();
+        } catch (IllegalArgumentException e) {
+            OneTimePack.log(1, "The mappings url '{}' is not valid", url);
+            return;
+        }
+        // Conditional request, so the same mappings are not downloaded again
+        if (meta != null) {
+            final String etag = meta.getProperty("etag");
+            if (etag != null) {
+                builder.header("If-None-Match", etag);
+            }
+            final String lastModified = meta.getProperty("last-modified");
+            if (lastModified != null) {
+                builder.header("If-Modified-Since", lastModified);
+            }
+        }
+        // The response is streamed into a temporary file that replaces the cache once is validated
+        final Path cache = getCacheFile().toPath();
+        final Path temp = cache.resolveSibling(cache.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(cache.getParent());
+        } catch (IOException e) {
+            OneTimePack.log(2, e, "Cannot create mappings cache folder");
+            return;
+        }
+        final HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(timeout))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        // Only a 200 body is written to disk, 304 and error pages are discarded
+        final HttpResponse.BodyHandler<Path> handler = info -> info.statusCode() == 200
+                ? HttpResponse.BodyHandlers.ofFile(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING).apply(info)
+                : HttpResponse.BodySubscribers.replacing(null);
+        refresh = client.sendAsync(builder.build(), handler).handle((response, throwable) -> {
+            try {
+                if (throwable != null) {
+                    OneTimePack.log(2, "Cannot retrieve data from mappings url: {}", throwable.getMessage());
+                    return false;
                 }
-            } else {
-                OneTimePack.log(1, "Cannot read " + fileName + " file");
+                if (response.statusCode() == 304) {
+                    OneTimePack.log(3, "Mappings from url are up to date");
+                    return false;
+                }
+                if (response.statusCode() != 200) {
+                    if (OneTimePack.isLoggable(2)) {
+                        OneTimePack.log(2, "Cannot retrieve data from mappings url, the server returned {}", response.statusCode());
+                    }
+                    return false;
+                }
+                final Source source = readFile(temp.toFile());
+                if (source == null || source.tables.isEmpty()) {
+                    OneTimePack.log(2, "The data from mappings url doesn't contain any mapping");
+                    return false;
+                }
+                Files.move(temp, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                saveCacheMeta(url, response.headers().firstValue("ETag").orElse(null), response.headers().firstValue("Last-Modified").orElse(null));
+            } catch (IOException e) {
+                OneTimePack.log(2, e, "Cannot save mappings from url");
+                return false;
+            } finally {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) { }
             }
-        } else {
-            OneTimePack.log(1, "Cannot load " + fileName + " file from plugin JAR");
+            OneTimePack.log(3, "Mappings from url were updated, they will be used on next load");
+            return true;
+        });
+    }
+
+    @NotNull
+    private File getCacheMetaFile() {
+        return FileUtils.getFile(folder, "cache/" + fileName + ".properties");
+    }
+
+    @Nullable
+    private Properties loadCacheMeta(@NotNull String url) {
+        final File file = getCacheMetaFile();
+        if (!file.exists()) {
+            return null;
+        }
+        final Properties meta = new Properties();
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            meta.load(reader);
+        } catch (IOException e) {
+            OneTimePack.log(2, "Cannot read cached mappings information: {}", e.getMessage());
+            return null;
         }
-        return null;
+        // The configured url was changed
+        if (!url.equals(meta.getProperty("url"))) {
+            return null;
+        }
+        return meta;
     }
 
     @Nullable
-    private JsonObject loadUrlFile(@Nullable String url) {
-        if (url != null) {
-            if (!url.trim().isEmpty()) {
-                final String lines = FileUtils.readFromUrl(url);
-                if (lines != null) {
-                    if (!lines.trim().isEmpty()) {
-                        return JsonParser.parseString(lines).getAsJsonObject();
-                    } else {
-                        OneTimePack.log(1, "The url data is empty");
-                    }
-                } else {
-                    OneTimePack.log(1, "Cannot retrieve data from mappings url");
+    private Source loadCacheFile() {
+        final File file = getCacheFile();
+        if (!file.exists()) {
+            return null;
+        }
+        final Source source = readFile(file);
+        if (source == null || source.tables.isEmpty()) {
+            OneTimePack.log(2, "The cached mappings file is not valid, so it will be ignored");
+            return null;
+        }
+        return source;
+    }
+
+    private void saveCacheMeta(@NotNull String url, @Nullable String etag, @Nullable String lastModified) throws IOException {
+        final Properties meta = new Properties();
+        meta.setProperty("url", url);
+        if (etag != null) {
+            meta.setProperty("etag", etag);
+        }
+        if (lastModified != null) {
+            meta.setProperty("last-modified", lastModified);
+        }
+        try (Writer writer = Files.newBufferedWriter(getCacheMetaFile().toPath(), StandardCharsets.UTF_8)) {
+            meta.store(writer, "Mappings downloaded from url");
+        }
+    }
+
+    private void writeSnapshot(@NotNull DataOutput out, @NotNull Source source) throws IOException {
+        out.writeBoolean(source.external);
+        out.writeBoolean(source.cached);
+        out.writeUTF(source.url == null ? "" : source.url);
+        out.writeInt(source.timeout);
+        out.writeInt(STATES.length);
+        out.writeInt(source.tables.size());
+        for (Map.Entry<String, IdTable[]> entry : source.tables.entrySet()) {
+            out.writeUTF(entry.getKey());
+            for (IdTable table : entry.getValue()) {
+                if (table == null) {
+                    out.writeBoolean(false);
+                    continue;
+                }
+                out.writeBoolean(true);
+                out.writeInt(table.min);
+                out.writeInt(table.ids.length);
+                for (int id : table.ids) {
+                    out.writeInt(id);
                 }
-            } else {
-                OneTimePack.log(1, "The provided URL cannot be empty");
             }
-        } else {
-            OneTimePack.log(1, "The file " + fileName + " doesn't have any configured URL");
         }
-        return null;
+    }
+
+    @NotNull
+    private Source readSnapshot(@NotNull DataInput in) throws IOException {
+        final Source source = new Source();
+        source.external = in.readBoolean();
+        source.cached = in.readBoolean();
+        source.url = in.readUTF();
+        source.timeout = in.readInt();
+        if (in.readInt() != STATES.length) {
+            throw new IOException("The snapshot was made with different protocol states");
+        }
+        final int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            final String name = in.readUTF();
+            final IdTable[] tables = new IdTable[STATES.length];
+            for (int state = 0; state < tables.length; state++) {
+                if (!in.readBoolean()) {
+                    continue;
+                }
+                final int min = in.readInt();
+                final int length = in.readInt();
+                if (length < 0 || length > MAX_TABLE_SIZE) {
+                    throw new IOException("Invalid table size: " + length);
+                }
+                final int[] ids = new int[length];
+                for (int j = 0; j < length; j++) {
+                    ids[j] = in.readInt();
+                }
+                tables[state] = length == 0 ? IdTable.EMPTY : new IdTable(min, ids);
+            }
+            source.tables.put(name, tables);
+        }
+        return source;
+    }
+
+    private static final class Source {
+
+        private boolean external;
+        // True if the tables are from the downloaded mappings
+        private boolean cached;
+        private String url;
+        private int timeout = DEFAULT_TIMEOUT;
+        private Map<String, IdTable[]> tables = new HashMap<>();
     }
 
     @FunctionalInterface
@@ -192,4 +519,86 @@ public class Mappings<T> {
         @NotNull
         T get(int start, int end, int id);
     }
+
+    @FunctionalInterface
+    public interface RangeConsumer {
+
+        void accept(int start, int end, int id);
+    }
+
+    public static final class IdTable {
+
+        private static final IdTable EMPTY = new IdTable(0, new int[0]);
+
+        private final int min;
+        // Packet id by protocol offset, -1 for unmapped protocols
+        private final int[] ids;
+
+        @NotNull
+        static IdTable of(@NotNull String name, @NotNull List<int[]> ranges) {
+            if (ranges.isEmpty()) {
+                return EMPTY;
+            }
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (int[] range : ranges) {
+                min = Math.min(min, range[0]);
+                max = Math.max(max, range[1]);
+            }
+            if (max - min >= MAX_TABLE_SIZE) {
+                if (OneTimePack.isLoggable(1)) {
+                    OneTimePack.log(1, "The mappings of {} packet from protocol {} to {} are too far apart, only the first {} protocols will be used", name, min, max, MAX_TABLE_SIZE);
+                }
+                max = min + MAX_TABLE_SIZE - 1;
+            }
+            final int[] ids = new int[max - min + 1];
+            Arrays.fill(ids, -1);
+            for (int[] range : ranges) {
+                // A protocol can only have one packet id, the first declared range takes priority
+                int overlapped = 0;
+                for (int protocol = range[0]; protocol <= Math.min(range[1], max); protocol++) {
+                    final int id = ids[protocol - min];
+                    if (id < 0) {
+                        ids[protocol - min] = range[2];
+                    } else if (id != range[2]) {
+                        overlapped++;
+                    }
+                }
+                if (overlapped > 0) {
+                    if (OneTimePack.isLoggable(2)) {
+                        OneTimePack.log(2, "The mapping {}-{} of {} packet overlaps with a previous range on {} protocols, so the previous id will be used on them", range[0], range[1], name, overlapped);
+                    }
+                }
+            }
+            return new IdTable(min, ids);
+        }
+
+        private IdTable(int min, int[] ids) {
+            this.min = min;
+            this.ids = ids;
+        }
+
+        public int get(int protocol) {
+            final int index = protocol - min;
+            return index < 0 || index >= ids.length ? -1 : ids[index];
+        }
+
+        public boolean isEmpty() {
+            return ids.length == 0;
+        }
+
+        // Consecutive protocols with the same id are joined into a single range
+        public void forEachRange(@NotNull RangeConsumer consumer) {
+            int start = -1;
+            for (int i = 0; i <= ids.length; i++) {
+                if (start >= 0 && (i == ids.length || ids[i] != ids[start])) {
+                    consumer.accept(min + start, min + i - 1, ids[start]);
+                    start = -1;
+                }
+                if (i < ids.length && start < 0 && ids[i] >= 0) {
+                    start = i;
+                }
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -44,12 +44,12 @@ public class PacketEventsProcessor extends Processor<User, ResourcePackPush, Con
             if (!isSendCached1_20_2() || event.getUser().getClientVersion().isNewerThanOrEquals(ClientVersion.V_1_20_3)) {
                 return;
             }
-            final UUID uuid = event.getUser().getUUID();
-            if (getUsers().containsKey(uuid)) {
+            final PacketUser<ResourcePackPush> user = getPacketUser(event.getUser().getUUID());
+            if (user != null) {
                 OneTimePack.log(4, "The cached pack will be send for player due it's on configuration state");
                 event.getPostTasks().add(() -> {
                     if (event.isCancelled()) return;
-                    for (Map.Entry<UUID, ResourcePackPush> entry : getUsers().get(uuid).getPacks().entrySet()) {
+                    for (Map.Entry<UUID, ResourcePackPush> entry : user.getPacks().entrySet()) {
                         final ResourcePackPush packet = entry.getValue().as(event.getUser().getConnectionState());
                         packet.setServerVersion(event.getUser().getClientVersion().toServerVersion());
                         event.getUser().sendPacket(packet);
@@ -72,20 +72,15 @@ public class PacketEventsProcessor extends Processor<User, ResourcePackPush, Con
 
     protected void onPackPush(@NotNull PacketSendEvent event, @NotNull ConnectionState state) {
         final ResourcePackPush packet = new ResourcePackPush(event);
-        final Optional<PackResult> optional = onPackPush(event.getUser(), state, packet, packet.getUniqueId(), packet.getHash());
+        final Optional<PackResult> optional = onPackPush(event.getUser(), state, packet, packet.getUniqueId(), packet.getDescriptor().getPackHash());
         if (optional == null) return;
 
         event.setCancelled(true);
 
         final PackResult result = optional.orElse(null);
-        if (result == null) return;
-
-        final ResourcePackStatus cached = event.getUser().getClientVersion().isOlderThan(ClientVersion.V_1_20_3)
-                ? new ResourcePackStatus(packet.getHash(), result)
-                : new ResourcePackStatus(packet.getState(), packet.getUniqueId(), result);
-        cached.setServerVersion(packet.getServerVersion());
-        PacketEvents.getAPI().getProtocolManager().receivePacket(event.getUser().getChannel(), cached);
-        OneTimePack.log(4, () -> "Sent cached result " + cached + " from user " + event.getUser().getUUID());
+        if (result != null) {
+            sendResult(event.getUser(), state, packet, result);
+        }
     }
 
     @Override
@@ -98,7 +93,7 @@ public class PacketEventsProcessor extends Processor<User, ResourcePackPush, Con
         return switch (name) {
             case "UUID" -> ResourcePackPush::getUniqueId;
             case "URL" -> ResourcePackPush::getUrl;
-            case "HASH" -> ResourcePackPush::getHash;
+            case "HASH" -> pack -> pack.getDescriptor().getPackHash();
             case "PROMPT" -> ResourcePackPush::getPrompt;
             case "ALL" -> pack -> pack;
             case "ANY" -> pack -> true;
@@ -110,4 +105,19 @@ public class PacketEventsProcessor extends Processor<User, ResourcePackPush, Con
     public void clearPackets(@NotNull User user, @NotNull ConnectionState state) {
         user.sendPacket(new ResourcePackPop(state, false, null));
     }
+
+    @Override
+    protected @Nullable ConnectionState getState(@NotNull User user) {
+        return user.getConnectionState();
+    }
+
+    @Override
+    public void sendResult(@NotNull User user, @NotNull ConnectionState state, @NotNull ResourcePackPush packet, @NotNull PackResult result) {
+        final ResourcePackStatus cached = user.getClientVersion().isOlderThan(ClientVersion.V_1_20_3)
+                ? new ResourcePackStatus(packet.getHash(), result)
+                : new ResourcePackStatus(packet.getState(), packet.getUniqueId(), result);
+        cached.setServerVersion(packet.getServerVersion());
+        PacketEvents.getAPI().getProtocolManager().receivePacket(user.getChannel(), cached);
+        OneTimePack.log(4, "Sent cached result {} from user {}", cached, user.getUUID());
+    }
 }
@@ -61,7 +61,7 @@ public class ResourcePackPop extends PacketWrapper<ResourcePackPop> implements C
         if (hasUniqueId) {
             uniqueId = readUUID();
         }
-        OneTimePack.log(4, () -> "[" + getState().name() + "] Packet#read() = " + this);
+        OneTimePack.log(4, "[{}] Packet#read() = {}", getState().name(), this);
     }
 
     @Override
@@ -7,6 +7,7 @@ import com.github.retrooper.packetevents.protocol.packettype.PacketType;
 import com.github.retrooper.packetevents.util.adventure.AdventureSerializer;
 import com.github.retrooper.packetevents.wrapper.PacketWrapper;
 import com.saicone.onetimepack.OneTimePack;
+import com.saicone.onetimepack.core.PackDescriptor;
 import net.kyori.adventure.text.Component;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -21,8 +22,8 @@ public class ResourcePackPush extends PacketWrapper<ResourcePackPush> implements
     private final ConnectionState state;
 
     private UUID uniqueId; // Added in 1.20.3
-    private String url;
-    private String hash;
+    // Shared url and hash
+    private PackDescriptor descriptor = PackDescriptor.EMPTY;
 
     // Added in 1.17
     private boolean forced;
@@ -47,8 +48,7 @@ public class ResourcePackPush extends PacketWrapper<ResourcePackPush> implements
         super(state == ConnectionState.CONFIGURATION ? PacketType.Configuration.Server.RESOURCE_PACK_SEND : PacketType.Play.Server.RESOURCE_PACK_SEND);
         this.state = state;
         this.uniqueId = uniqueId;
-        this.url = url;
-        this.hash = hash;
+        this.descriptor = PackDescriptor.of(url, hash);
         this.forced = forced;
         this.hasPromptMessage = hasPromptMessage;
         this.prompt = prompt;
@@ -67,12 +67,17 @@ public class ResourcePackPush extends PacketWrapper<ResourcePackPush> implements
 
     @Nullable
     public String getUrl() {
-        return url;
+        return descriptor.getUrl();
     }
 
     @Nullable
     public String getHash() {
-        return hash;
+        return descriptor.getHash();
+    }
+
+    @NotNull
+    public PackDescriptor getDescriptor() {
+        return descriptor;
     }
 
     @Nullable
@@ -93,11 +98,15 @@ public class ResourcePackPush extends PacketWrapper<ResourcePackPush> implements
     }
 
     public void setUrl(@Nullable String url) {
-        this.url = url;
+        this.descriptor = descriptor.withUrl(url);
     }
 
     public void setHash(@Nullable String hash) {
-        this.hash = hash;
+        this.descriptor = descriptor.withHash(hash);
+    }
+
+    public void setDescriptor(@NotNull PackDescriptor descriptor) {
+        this.descriptor = descriptor;
     }
 
     public void setForced(boolean forced) {
@@ -119,8 +128,7 @@ public class ResourcePackPush extends PacketWrapper<ResourcePackPush> implements
             uniqueId = readUUID();
         }
 
-        url = readString();
-        hash = readString(MAX_HASH_LENGTH);
+        descriptor = PackDescriptor.of(readString(), readString(MAX_HASH_LENGTH));
         if (getServerVersion().isNewerThanOrEquals(ServerVersion.V_1_17)) {
             forced = readBoolean();
             hasPromptMessage = readBoolean();
@@ -129,7 +137,7 @@ public class ResourcePackPush extends PacketWrapper<ResourcePackPush> implements
             }
         }
 
-        OneTimePack.log(4, () -> "[" + getState().name() + "] Packet#read() = " + this);
+        OneTimePack.log(4, "[{}] Packet#read() = {}", getState().name(), this);
     }
 
     @Override
@@ -138,8 +146,8 @@ public class ResourcePackPush extends PacketWrapper<ResourcePackPush> implements
             writeUUID(uniqueId);
         }
 
-        writeString(url);
-        writeString(hash, MAX_HASH_LENGTH);
+        writeString(descriptor.getUrl());
+        writeString(descriptor.getHash(), MAX_HASH_LENGTH);
         if (getServerVersion().isNewerThanOrEquals(ServerVersion.V_1_17)) {
             writeBoolean(forced);
             writeBoolean(hasPromptMessage);
@@ -151,14 +159,15 @@ public class ResourcePackPush extends PacketWrapper<ResourcePackPush> implements
 
     @Override
     public @NotNull ResourcePackPush copy() {
-        return new ResourcePackPush(state, uniqueId, url, hash, forced, hasPromptMessage, prompt);
+        final ResourcePackPush packet = new ResourcePackPush(state, uniqueId, null, null, forced, hasPromptMessage, prompt);
+        packet.descriptor = descriptor;
+        return packet;
     }
 
     @Override
     public void copy(ResourcePackPush wrapper) {
         uniqueId = wrapper.uniqueId;
-        url = wrapper.url;
-        hash = wrapper.hash;
+        descriptor = wrapper.descriptor;
         forced = wrapper.forced;
         hasPromptMessage = wrapper.hasPromptMessage;
         prompt = wrapper.prompt;
@@ -174,16 +183,14 @@ public class ResourcePackPush extends PacketWrapper<ResourcePackPush> implements
         if (forced != that.forced) return false;
         if (hasPromptMessage != that.hasPromptMessage) return false;
         if (!Objects.equals(uniqueId, that.uniqueId)) return false;
-        if (!Objects.equals(url, that.url)) return false;
-        if (!Objects.equals(hash, that.hash)) return false;
+        if (!descriptor.equals(that.descriptor)) return false;
         return Objects.equals(prompt, that.prompt);
     }
 
     @Override
     public int hashCode() {
         int result = uniqueId != null ? uniqueId.hashCode() : 0;
-        result = 31 * result + (url != null ? url.hashCode() : 0);
-        result = 31 * result + (hash != null ? hash.hashCode() : 0);
+        result = 31 * result + descriptor.hashCode();
         result = 31 * result + (forced ? 1 : 0);
         result = 31 * result + (hasPromptMessage ? 1 : 0);
         result = 31 * result + (prompt != null ? prompt.hashCode() : 0);
@@ -194,8 +201,8 @@ public class ResourcePackPush extends PacketWrapper<ResourcePackPush> implements
     public String toString() {
         return "ClientboundResourcePackPush{" +
                 (uniqueId != null ? "uniqueId='" + uniqueId + "', " : "") +
-                "url='" + url + '\'' +
-                ", hash='" + hash + '\'' +
+                "url='" + descriptor.getUrl() + '\'' +
+                ", hash='" + descriptor.getHash() + '\'' +
                 ", forced=" + forced +
                 ", hasPromptMessage=" + hasPromptMessage +
                 (hasPromptMessage ? ", promptMessage='" + AdventureSerializer.toJson(prompt) + '\'' : "") +
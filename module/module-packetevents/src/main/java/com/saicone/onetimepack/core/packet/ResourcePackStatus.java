@@ -104,7 +104,7 @@ public class ResourcePackStatus extends PacketWrapper<ResourcePackStatus> implem
             hash = readString(ResourcePackPush.MAX_HASH_LENGTH);
         }
         result = PackResult.of(readVarInt());
-        OneTimePack.log(4, () -> "[" + getState().name() + "] Packet#read() = " + this);
+        OneTimePack.log(4, "[{}] Packet#read() = {}", getState().name(), this);
     }
 
     @Override
@@ -11,7 +11,6 @@ import dev.simplix.protocolize.api.PacketDirection;
 import dev.simplix.protocolize.api.Protocol;
 import dev.simplix.protocolize.api.mapping.AbstractProtocolMapping;
 import dev.simplix.protocolize.api.mapping.ProtocolIdMapping;
-import dev.simplix.protocolize.api.packet.AbstractPacket;
 import dev.simplix.protocolize.api.player.ProtocolizePlayer;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -39,11 +38,11 @@ public class MappedProtocolizeProcessor<StartT> extends ProtocolizeProcessor<Sta
     protected void registerListeners() {
         getPacketListener().registerReceive(ResourcePackPush.Configuration.class, Direction.DOWNSTREAM, event -> {
             final ResourcePackPush packet = event.packet();
-            onPackPush(event, Protocol.CONFIGURATION, packet.getUniqueId(), packet.getHash());
+            onPackPush(event, Protocol.CONFIGURATION, packet.getUniqueId(), packet.getDescriptor().getPackHash());
         });
         getPacketListener().registerReceive(ResourcePackPush.Play.class, Direction.DOWNSTREAM, event -> {
             final ResourcePackPush packet = event.packet();
-            onPackPush(event, Protocol.PLAY, packet.getUniqueId(), packet.getHash());
+            onPackPush(event, Protocol.PLAY, packet.getUniqueId(), packet.getDescriptor().getPackHash());
         });
         getPacketListener().registerReceive(ResourcePackPop.Configuration.class, Direction.DOWNSTREAM, event -> {
             final ResourcePackPop packet = event.packet();
@@ -68,7 +67,7 @@ public class MappedProtocolizeProcessor<StartT> extends ProtocolizeProcessor<Sta
         return switch (name) {
             case "UUID" -> ResourcePackPush::getUniqueId;
             case "URL" -> ResourcePackPush::getUrl;
-            case "HASH" -> ResourcePackPush::getHash;
+            case "HASH" -> pack -> pack.getDescriptor().getPackHash();
             case "PROMPT" -> ResourcePackPush::getPrompt;
             case "ALL" -> pack -> pack;
             case "ANY" -> pack -> true;
@@ -94,10 +93,11 @@ public class MappedProtocolizeProcessor<StartT> extends ProtocolizeProcessor<Sta
         }
     }
 
-    private <T extends AbstractPacket> void register(@NotNull Mappings mappings, @NotNull String name, @NotNull Consumer<Function<String, List<ProtocolIdMapping>>> consumer) {
+    private void register(@NotNull Mappings<ProtocolIdMapping> mappings, @NotNull String name, @NotNull Consumer<Function<String, List<ProtocolIdMapping>>> consumer) {
         if (!mappings.contains(name)) {
             consumer.accept(null);
         } else {
+            // Protocolize registers ranges, so they are built from the compiled table of every protocol state
             consumer.accept(protocol -> mappings.getMappings(name, protocol));
         }
     }
@@ -56,12 +56,12 @@ public abstract class ProtocolizeProcessor<StartT, PushT, StatusT> extends Proce
             if (!isSendCached1_20_2() || event.player().protocolVersion() >= ProtocolVersions.MINECRAFT_1_20_3) {
                 return;
             }
-            final UUID uuid = event.player().uniqueId();
-            if (getUsers().containsKey(uuid)) {
+            final PacketUser<PushT> user = getPacketUser(event.player().uniqueId());
+            if (user != null) {
                 OneTimePack.log(4, "The cached pack will be send for player due it's on configuration state");
-                // Send with new thread due Protocolize catch StartConfiguration packet before proxy itself
-                new Thread(() -> {
-                    for (Map.Entry<UUID, PushT> entry : getUsers().get(uuid).getPacks().entrySet()) {
+                // Send on executor due Protocolize catch StartConfiguration packet before proxy itself
+                execute(() -> {
+                    for (Map.Entry<UUID, PushT> entry : user.getPacks().entrySet()) {
                         final PushT packet = getPushPacket(entry.getValue());
                         if (packet instanceof AbstractPacket) {
                             event.player().sendPacket(getWrappedPacket(
@@ -75,7 +75,7 @@ public abstract class ProtocolizeProcessor<StartT, PushT, StatusT> extends Proce
                         }
                     }
                     OneTimePack.log(4, "Sent!");
-                }).start();
+                });
             }
         });
         registerListeners();
@@ -85,15 +85,21 @@ public abstract class ProtocolizeProcessor<StartT, PushT, StatusT> extends Proce
 
     protected void onPackPush(@NotNull PacketReceiveEvent<? extends PushT> event, @NotNull Protocol protocol, @Nullable UUID id, @Nullable Object hash) {
         final ProtocolizePlayer player = event.player();
-        final Optional<PackResult> optional = onPackPush(player, protocol, event.packet(), id, hash);
+        final PushT packet = event.packet();
+        final Optional<PackResult> optional = onPackPush(player, protocol, packet, id, hash);
         if (optional == null) return;
 
         event.cancelled(true);
 
         final PackResult result = optional.orElse(null);
-        if (result == null) return;
+        if (result != null) {
+            sendResult(player, protocol, packet, result);
+        }
+    }
 
-        final StatusT cached = getStatusPacket(protocol, event.packet(), result);
+    @Override
+    public void sendResult(@NotNull ProtocolizePlayer player, @NotNull Protocol protocol, @NotNull PushT packet, @NotNull PackResult result) {
+        final StatusT cached = getStatusPacket(protocol, packet, result);
         if (protocol == Protocol.CONFIGURATION && cached instanceof AbstractPacket) {
             player.sendPacketToServer(getWrappedPacket(
                     (AbstractPacket) cached,
@@ -104,7 +110,7 @@ public abstract class ProtocolizeProcessor<StartT, PushT, StatusT> extends Proce
         } else {
             player.sendPacketToServer(cached);
         }
-        OneTimePack.log(4, () -> "Sent cached result " + result.name() + " from user " + player.uniqueId());
+        OneTimePack.log(4, "Sent cached result {} from user {}", result.name(), player.uniqueId());
     }
 
     @NotNull
@@ -99,7 +99,7 @@ public class ResourcePackPop extends AbstractPacket {
         if (hasUniqueId) {
             uniqueId = ProtocolUtil.readUniqueId(buf);
         }
-        OneTimePack.log(4, () -> "[" + getProtocol().name() + "] Packet#read() = " + this);
+        OneTimePack.log(4, "[{}] Packet#read() = {}", getProtocol().name(), this);
     }
 
     @Override
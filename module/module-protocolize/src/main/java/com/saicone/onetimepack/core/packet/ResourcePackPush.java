@@ -1,6 +1,8 @@
 package com.saicone.onetimepack.core.packet;
 
 import com.saicone.onetimepack.OneTimePack;
+import com.saicone.onetimepack.core.PackDescriptor;
+import com.saicone.onetimepack.util.BufferUtils;
 import dev.simplix.protocolize.api.PacketDirection;
 import dev.simplix.protocolize.api.Protocol;
 import dev.simplix.protocolize.api.Protocolize;
@@ -10,6 +12,7 @@ import dev.simplix.protocolize.api.packet.AbstractPacket;
 import dev.simplix.protocolize.api.util.ProtocolUtil;
 import dev.simplix.protocolize.data.util.NamedBinaryTagUtil;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import net.querz.nbt.tag.Tag;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -80,8 +83,8 @@ public class ResourcePackPush extends AbstractPacket {
     }
 
     private UUID uniqueId; // Added in 1.20.3
-    private String url;
-    private String hash;
+    // Shared url and hash
+    private PackDescriptor descriptor = PackDescriptor.EMPTY;
 
     // Added in 1.17
     private boolean forced;
@@ -91,24 +94,25 @@ public class ResourcePackPush extends AbstractPacket {
     // Added in 1.20.3
     private Tag<?> promptTag;
 
+    // Encoded prompt from read(), it's only decoded if needed and shared between copies
+    private byte[] rawPrompt;
+    private int rawPromptVersion;
+
     public ResourcePackPush() {
     }
 
     public ResourcePackPush(@Nullable String url, @Nullable String hash) {
-        this.url = url;
-        this.hash = hash;
+        this.descriptor = PackDescriptor.of(url, hash);
     }
 
     public ResourcePackPush(@Nullable UUID uniqueId, @Nullable String url, @Nullable String hash, boolean forced) {
         this.uniqueId = uniqueId;
-        this.url = url;
-        this.hash = hash;
+        this.descriptor = PackDescriptor.of(url, hash);
         this.forced = forced;
     }
 
     public ResourcePackPush(@Nullable String url, @Nullable String hash, boolean forced, boolean hasPromptMessage, @Nullable String promptJson) {
-        this.url = url;
-        this.hash = hash;
+        this.descriptor = PackDescriptor.of(url, hash);
         this.forced = forced;
         this.hasPromptMessage = hasPromptMessage;
         this.promptJson = promptJson;
@@ -116,8 +120,7 @@ public class ResourcePackPush extends AbstractPacket {
 
     public ResourcePackPush(@Nullable UUID uniqueId, @Nullable String url, @Nullable String hash, boolean forced, boolean hasPromptMessage, @Nullable Tag<?> promptTag) {
         this.uniqueId = uniqueId;
-        this.url = url;
-        this.hash = hash;
+        this.descriptor = PackDescriptor.of(url, hash);
         this.forced = forced;
         this.hasPromptMessage = hasPromptMessage;
         this.promptTag = promptTag;
@@ -130,26 +133,42 @@ public class ResourcePackPush extends AbstractPacket {
 
     @Nullable
     public String getUrl() {
-        return url;
+        return descriptor.getUrl();
     }
 
     @Nullable
     public String getHash() {
-        return hash;
+        return descriptor.getHash();
+    }
+
+    @NotNull
+    public PackDescriptor getDescriptor() {
+        return descriptor;
     }
 
     @Nullable
     public Object getPrompt() {
-        return promptJson != null ? promptJson : promptTag;
+        final String promptJson = getPromptJson();
+        return promptJson != null ? promptJson : getPromptTag();
     }
 
     @Nullable
     public String getPromptJson() {
+        if (promptJson == null && rawPrompt != null && rawPromptVersion < MINECRAFT_1_20_3) {
+            promptJson = ProtocolUtil.readString(Unpooled.wrappedBuffer(rawPrompt));
+        }
         return promptJson;
     }
 
     @Nullable
     public Tag<?> getPromptTag() {
+        if (promptTag == null && rawPrompt != null && rawPromptVersion >= MINECRAFT_1_20_3) {
+            try {
+                promptTag = NamedBinaryTagUtil.readTag(Unpooled.wrappedBuffer(rawPrompt), rawPromptVersion);
+            } catch (IOException e) {
+                OneTimePack.log(2, e);
+            }
+        }
         return promptTag;
     }
 
@@ -171,11 +190,15 @@ public class ResourcePackPush extends AbstractPacket {
     }
 
     public void setUrl(@Nullable String url) {
-        this.url = url;
+        this.descriptor = descriptor.withUrl(url);
     }
 
     public void setHash(@Nullable String hash) {
-        this.hash = hash;
+        this.descriptor = descriptor.withHash(hash);
+    }
+
+    public void setDescriptor(@NotNull PackDescriptor descriptor) {
+        this.descriptor = descriptor;
     }
 
     public void setForced(boolean forced) {
@@ -189,11 +212,13 @@ public class ResourcePackPush extends AbstractPacket {
     public void setPromptJson(@Nullable String promptJson) {
         this.promptJson = promptJson;
         this.hasPromptMessage = promptJson != null;
+        this.rawPrompt = null;
     }
 
     public void setPromptTag(@Nullable Tag<?> promptTag) {
         this.promptTag = promptTag;
         this.hasPromptMessage = promptTag != null;
+        this.rawPrompt = null;
     }
 
     @Override
@@ -201,28 +226,33 @@ public class ResourcePackPush extends AbstractPacket {
         if (protocol >= MINECRAFT_1_20_3) {
             uniqueId = ProtocolUtil.readUniqueId(buf);
         }
-        url = ProtocolUtil.readString(buf);
-        hash = ProtocolUtil.readString(buf);
+        descriptor = PackDescriptor.of(ProtocolUtil.readString(buf), ProtocolUtil.readString(buf));
         if (protocol >= MINECRAFT_1_17) {
             forced = buf.readBoolean();
             hasPromptMessage = buf.readBoolean();
+            promptJson = null;
+            promptTag = null;
+            rawPrompt = null;
             if (hasPromptMessage) {
-                if (protocol >= MINECRAFT_1_20_3) {
-                    try {
-                        promptTag = NamedBinaryTagUtil.readTag(buf, protocol);
-                    } catch (IOException e) {
-                        hasPromptMessage = false;
-                        OneTimePack.log(2, e);
+                final int start = buf.readerIndex();
+                try {
+                    if (protocol >= MINECRAFT_1_20_3) {
+                        BufferUtils.skipTag(buf);
+                    } else {
+                        BufferUtils.skipString(buf);
                     }
-                } else {
-                    promptJson = ProtocolUtil.readString(buf);
+                    rawPrompt = BufferUtils.copy(buf, start);
+                    rawPromptVersion = protocol;
+                } catch (RuntimeException e) {
+                    hasPromptMessage = false;
+                    OneTimePack.log(2, e);
                 }
             }
         } else {
             forced = false;
             hasPromptMessage = false;
         }
-        OneTimePack.log(4, () -> "[" + getProtocol().name() + "] Packet#read() = " + this);
+        OneTimePack.log(4, "[{}] Packet#read() = {}", getProtocol().name(), this);
     }
 
     @Override
@@ -230,20 +260,23 @@ public class ResourcePackPush extends AbstractPacket {
         if (protocol >= MINECRAFT_1_20_3) {
             ProtocolUtil.writeUniqueId(buf, uniqueId);
         }
-        ProtocolUtil.writeString(buf, url);
-        ProtocolUtil.writeString(buf, hash);
+        ProtocolUtil.writeString(buf, descriptor.getUrl());
+        ProtocolUtil.writeString(buf, descriptor.getHash());
         if (protocol >= MINECRAFT_1_17) {
             buf.writeBoolean(forced);
             buf.writeBoolean(hasPromptMessage);
             if (hasPromptMessage) {
-                if (protocol >= MINECRAFT_1_20_3) {
+                if (rawPrompt != null && (rawPromptVersion >= MINECRAFT_1_20_3) == (protocol >= MINECRAFT_1_20_3)) {
+                    // Unmodified prompt with the same encoding
+                    buf.writeBytes(rawPrompt);
+                } else if (protocol >= MINECRAFT_1_20_3) {
                     try {
-                        NamedBinaryTagUtil.writeTag(buf, promptTag, protocol);
+                        NamedBinaryTagUtil.writeTag(buf, getPromptTag(), protocol);
                     } catch (IOException e) {
                         OneTimePack.log(2, e);
                     }
                 } else {
-                    ProtocolUtil.writeString(buf, promptJson);
+                    ProtocolUtil.writeString(buf, getPromptJson());
                 }
             }
         }
@@ -251,14 +284,7 @@ public class ResourcePackPush extends AbstractPacket {
 
     @NotNull
     public ResourcePackPush copy() {
-        if (hasPromptMessage) {
-            if (promptJson == null) {
-                return new ResourcePackPush(uniqueId, url, hash, forced, true, promptTag);
-            } else {
-                return new ResourcePackPush(url, hash, forced, true, promptJson);
-            }
-        }
-        return new ResourcePackPush(uniqueId, url, hash, forced);
+        return copyTo(new ResourcePackPush());
     }
 
     @NotNull
@@ -266,14 +292,7 @@ public class ResourcePackPush extends AbstractPacket {
         if (this instanceof ResourcePackPush.Play) {
             return (ResourcePackPush.Play) this;
         }
-        if (hasPromptMessage) {
-            if (promptJson == null) {
-                return new ResourcePackPush.Play(uniqueId, url, hash, forced, true, promptTag);
-            } else {
-                return new ResourcePackPush.Play(url, hash, forced, true, promptJson);
-            }
-        }
-        return new ResourcePackPush.Play(uniqueId, url, hash, forced);
+        return copyTo(new ResourcePackPush.Play());
     }
 
     @NotNull
@@ -281,14 +300,21 @@ public class ResourcePackPush extends AbstractPacket {
         if (this instanceof ResourcePackPush.Configuration) {
             return (ResourcePackPush.Configuration) this;
         }
-        if (hasPromptMessage) {
-            if (promptJson == null) {
-                return new ResourcePackPush.Configuration(uniqueId, url, hash, forced, true, promptTag);
-            } else {
-                return new ResourcePackPush.Configuration(url, hash, forced, true, promptJson);
-            }
-        }
-        return new ResourcePackPush.Configuration(uniqueId, url, hash, forced);
+        return copyTo(new ResourcePackPush.Configuration());
+    }
+
+    @NotNull
+    protected <T extends ResourcePackPush> T copyTo(@NotNull T packet) {
+        packet.uniqueId = uniqueId;
+        packet.descriptor = descriptor;
+        packet.forced = forced;
+        packet.hasPromptMessage = hasPromptMessage;
+        packet.promptJson = promptJson;
+        packet.promptTag = promptTag;
+        // Never modified, so the same bytes are shared instead of copied
+        packet.rawPrompt = rawPrompt;
+        packet.rawPromptVersion = rawPromptVersion;
+        return packet;
     }
 
     @Override
@@ -301,21 +327,19 @@ public class ResourcePackPush extends AbstractPacket {
         if (forced != that.forced) return false;
         if (hasPromptMessage != that.hasPromptMessage) return false;
         if (!Objects.equals(uniqueId, that.uniqueId)) return false;
-        if (!Objects.equals(url, that.url)) return false;
-        if (!Objects.equals(hash, that.hash)) return false;
-        if (!Objects.equals(promptJson, that.promptJson)) return false;
-        return Objects.equals(promptTag, that.promptTag);
+        if (!descriptor.equals(that.descriptor)) return false;
+        if (rawPrompt != null && that.rawPrompt != null && (rawPromptVersion >= MINECRAFT_1_20_3) == (that.rawPromptVersion >= MINECRAFT_1_20_3) && Arrays.equals(rawPrompt, that.rawPrompt)) return true;
+        if (!Objects.equals(getPromptJson(), that.getPromptJson())) return false;
+        return Objects.equals(getPromptTag(), that.getPromptTag());
     }
 
     @Override
     public int hashCode() {
         int result = uniqueId != null ? uniqueId.hashCode() : 0;
-        result = 31 * result + (url != null ? url.hashCode() : 0);
-        result = 31 * result + (hash != null ? hash.hashCode() : 0);
+        result = 31 * result + descriptor.hashCode();
         result = 31 * result + (forced ? 1 : 0);
+        // Prompt is not included, so it's not decoded just to be hashed
         result = 31 * result + (hasPromptMessage ? 1 : 0);
-        result = 31 * result + (promptJson != null ? promptJson.hashCode() : 0);
-        result = 31 * result + (promptTag != null ? promptTag.hashCode() : 0);
         return result;
     }
 
@@ -323,11 +347,11 @@ public class ResourcePackPush extends AbstractPacket {
     public String toString() {
         return "ClientboundResourcePackPush{" +
                 (uniqueId != null ? "uniqueId='" + uniqueId + "', " : "") +
-                "url='" + url + '\'' +
-                ", hash='" + hash + '\'' +
+                "url='" + descriptor.getUrl() + '\'' +
+                ", hash='" + descriptor.getHash() + '\'' +
                 ", forced=" + forced +
                 ", hasPromptMessage=" + hasPromptMessage +
-                (hasPromptMessage ? ", promptMessage='" + (promptJson != null ? promptJson : promptTag) + '\'' : "") +
+                (hasPromptMessage ? ", promptMessage='" + getPrompt() + '\'' : "") +
                 '}';
     }
 
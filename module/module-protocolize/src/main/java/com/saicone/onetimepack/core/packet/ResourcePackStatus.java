@@ -161,7 +161,7 @@ public class ResourcePackStatus extends AbstractPacket {
             hash = ProtocolUtil.readString(buf);
         }
         result = PackResult.of(ProtocolUtil.readVarInt(buf));
-        OneTimePack.log(4, () -> "[" + getProtocol().name() + "] Packet#read() = " + this);
+        OneTimePack.log(4, "[{}] Packet#read() = {}", getProtocol().name(), this);
     }
 
     @Override
@@ -44,7 +44,7 @@ public class PacketListener {
     @SuppressWarnings("unchecked")
     private void register(@NotNull Listener<?> listener) {
         if (listener.isRegistered()) {
-            OneTimePack.log(4, "The listener of " + listener.type().getName() + " is registered in direction " + listener.direction().name());
+            OneTimePack.log(4, "The listener of {} is registered in direction {}", listener.type().getName(), listener.direction().name());
             return;
         }
         if (Protocolize.platform() == Platform.BUNGEECORD || AbstractPacket.class.isAssignableFrom(listener.type())) {
@@ -57,11 +57,13 @@ public class PacketListener {
                 final List<AbstractPacketListener<?>> listeners = (List<AbstractPacketListener<?>>) field.get(Protocolize.listenerProvider());
                 listeners.add(listener);
             } catch (Throwable t) {
-                OneTimePack.log(1, t, "Cannot register listener of " + listener.type().getName() + " in direction " + listener.direction().name());
+                if (OneTimePack.isLoggable(1)) {
+                    OneTimePack.log(1, t, "Cannot register listener of {} in direction {}", listener.type().getName(), listener.direction().name());
+                }
                 return;
             }
         }
-        OneTimePack.log(4, "The listener of " + listener.type().getName() + " was registered in direction " + listener.direction().name());
+        OneTimePack.log(4, "The listener of {} was registered in direction {}", listener.type().getName(), listener.direction().name());
     }
 
     public void unregister() {
@@ -221,7 +223,7 @@ public class PacketListener {
         public void packetReceive(PacketReceiveEvent<T> event) {
             if (onReceive != null) {
                 if (event.packet() == null) {
-                    OneTimePack.log(4, "The packet " + type().getName() + " was null");
+                    OneTimePack.log(4, "The packet {} was null", type().getName());
                     event.cancelled(true);
                     return;
                 }
@@ -233,7 +235,7 @@ public class PacketListener {
         public void packetSend(PacketSendEvent<T> event) {
             if (onSend != null) {
                 if (event.packet() == null) {
-                    OneTimePack.log(4, "The packet " + type().getName() + " was null");
+                    OneTimePack.log(4, "The packet {} was null", type().getName());
                     event.cancelled(true);
                     return;
                 }
@@ -41,10 +41,10 @@ public class VelocityProcessor extends Processor<Player, ResourcePackInfo, Proto
         if (!isSendCached1_20_2() || event.player().getProtocolVersion().greaterThan(ProtocolVersion.MINECRAFT_1_20_2)) {
             return;
         }
-        final UUID uuid = event.player().getUniqueId();
-        if (getUsers().containsKey(uuid)) {
+        final PacketUser<ResourcePackInfo> user = getPacketUser(event.player().getUniqueId());
+        if (user != null) {
             OneTimePack.log(4, "The cached pack will be send for player due it's on configuration state");
-            for (var entry : getUsers().get(uuid).getPacks().entrySet()) {
+            for (var entry : user.getPacks().entrySet()) {
                 event.player().sendResourcePackOffer(entry.getValue());
             }
             OneTimePack.log(4, "Sent!");
@@ -56,19 +56,16 @@ public class VelocityProcessor extends Processor<Player, ResourcePackInfo, Proto
         final Player player = event.getServerConnection().getPlayer();
         final ResourcePackInfo info = event.getProvidedResourcePack();
 
-        final Optional<PackResult> optional = onPackPush(player, player.getProtocolState(), info, info.getId(), info.getHash());
+        final ProtocolState state = player.getProtocolState();
+        final Optional<PackResult> optional = onPackPush(player, state, info, info.getId(), info.getHash());
         if (optional == null) return;
 
         event.setResult(ResultedEvent.GenericResult.denied());
 
         final PackResult result = optional.orElse(null);
-        if (result == null) return;
-
-        // Async operation
-        proxy.getScheduler().buildTask(plugin, () -> {
-            proxy.getEventManager().fireAndForget(new PlayerResourcePackStatusEvent(player, info.getId(), VALUES[result.ordinal()], info));
-            OneTimePack.log(4, () -> "Sent cached result " + result.name() + " from user " + player.getUniqueId());
-        }).schedule();
+        if (result != null) {
+            sendResult(player, state, info, result);
+        }
     }
 
     @Subscribe
@@ -94,7 +91,7 @@ public class VelocityProcessor extends Processor<Player, ResourcePackInfo, Proto
         return switch (name) {
             case "UUID" -> ResourcePackInfo::getId;
             case "URL" -> ResourcePackInfo::getUrl;
-            case "HASH" -> ResourcePackInfo::getHash;
+            case "HASH" -> info -> PackHash.of(info.getHash());
             case "PROMPT" -> ResourcePackInfo::getPrompt;
             case "ALL" -> pack -> pack;
             case "ANY" -> pack -> true;
@@ -106,4 +103,18 @@ public class VelocityProcessor extends Processor<Player, ResourcePackInfo, Proto
     public void clearPackets(@NotNull Player player, @NotNull ProtocolState state) {
         player.clearResourcePacks();
     }
+
+    @Override
+    protected @Nullable ProtocolState getState(@NotNull Player player) {
+        return player.getProtocolState();
+    }
+
+    @Override
+    public void sendResult(@NotNull Player player, @NotNull ProtocolState state, @NotNull ResourcePackInfo info, @NotNull PackResult result) {
+        // Async operation
+        proxy.getScheduler().buildTask(plugin, () -> {
+            proxy.getEventManager().fireAndForget(new PlayerResourcePackStatusEvent(player, info.getId(), VALUES[result.ordinal()], info));
+            OneTimePack.log(4, "Sent cached result {} from user {}", result.name(), player.getUniqueId());
+        }).schedule();
+    }
 }
@@ -54,17 +54,17 @@ public class VPacketEventsProcessor extends Processor<Player, ResourcePackReques
             if (!isSendCached1_20_2() || event.getPlayer().getProtocolVersion().greaterThan(ProtocolVersion.MINECRAFT_1_20_2)) {
                 return;
             }
-            final UUID uuid = event.getPlayer().getUniqueId();
-            if (getUsers().containsKey(uuid)) {
+            final PacketUser<ResourcePackRequestPacket> user = getPacketUser(event.getPlayer().getUniqueId());
+            if (user != null) {
                 OneTimePack.log(4, "The cached pack will be send for player due it's on configuration state");
-                // Send with new thread due player still on PLAY protocol
-                new Thread(() -> {
+                // Send on executor due player still on PLAY protocol
+                execute(() -> {
                     if (!event.getResult().isAllowed()) return;
-                    for (var entry : getUsers().get(uuid).getPacks().entrySet()) {
+                    for (var entry : user.getPacks().entrySet()) {
                         ((ConnectedPlayer) event.getPlayer()).getConnection().write(entry.getValue());
                     }
                     OneTimePack.log(4, "Sent!");
-                }).start();
+                });
             }
         } else if (packet instanceof ResourcePackRequestPacket request) {
             onPackPush(event, request);
@@ -76,19 +76,17 @@ public class VPacketEventsProcessor extends Processor<Player, ResourcePackReques
     }
 
     private void onPackPush(@NotNull PacketSendEvent event, @NotNull ResourcePackRequestPacket packet) {
-        final Optional<PackResult> optional = onPackPush(event.getPlayer(), event.getPlayer().getProtocolState(), packet, packet.getId(), packet.getHash());
+        final Player player = event.getPlayer();
+        final ProtocolState state = player.getProtocolState();
+        final Optional<PackResult> optional = onPackPush(player, state, packet, packet.getId(), packet.getHash());
         if (optional == null) return;
 
         event.setResult(ResultedEvent.GenericResult.denied());
 
         final PackResult result = optional.orElse(null);
-        if (result == null) return;
-
-        event.getPlayer().getCurrentServer().ifPresent(server -> {
-            final ResourcePackResponsePacket cached = new ResourcePackResponsePacket(packet.getId(), packet.getHash(), PlayerResourcePackStatusEvent.Status.values()[result.ordinal()]);
-            ((VelocityServerConnection) server).getConnection().write(cached);
-            OneTimePack.log(4, () -> "Sent cached result " + cached + " from user " + event.getPlayer().getUniqueId());
-        });
+        if (result != null) {
+            sendResult(player, state, packet, result);
+        }
     }
 
     @Override
@@ -101,7 +99,7 @@ public class VPacketEventsProcessor extends Processor<Player, ResourcePackReques
         return switch (name) {
             case "UUID" -> ResourcePackRequestPacket::getId;
             case "URL" -> ResourcePackRequestPacket::getUrl;
-            case "HASH" -> ResourcePackRequestPacket::getHash;
+            case "HASH" -> packet -> PackHash.of(packet.getHash());
             case "PROMPT" -> pack -> pack.getPrompt() == null ? null : pack.getPrompt().getComponent();
             case "ALL" -> pack -> pack;
             case "ANY" -> pack -> true;
@@ -113,4 +111,18 @@ public class VPacketEventsProcessor extends Processor<Player, ResourcePackReques
     public void clearPackets(@NotNull Player player, @NotNull ProtocolState state) {
         player.clearResourcePacks();
     }
+
+    @Override
+    protected @Nullable ProtocolState getState(@NotNull Player player) {
+        return player.getProtocolState();
+    }
+
+    @Override
+    public void sendResult(@NotNull Player player, @NotNull ProtocolState state, @NotNull ResourcePackRequestPacket packet, @NotNull PackResult result) {
+        player.getCurrentServer().ifPresent(server -> {
+            final ResourcePackResponsePacket cached = new ResourcePackResponsePacket(packet.getId(), packet.getHash(), PlayerResourcePackStatusEvent.Status.values()[result.ordinal()]);
+            ((VelocityServerConnection) server).getConnection().write(cached);
+            OneTimePack.log(4, "Sent cached result {} from user {}", cached, player.getUniqueId());
+        });
+    }
 }
@@ -3,6 +3,8 @@ package com.saicone.onetimepack;
 import com.saicone.onetimepack.core.BungeePacketUser;
 import com.saicone.onetimepack.core.PacketUser;
 import com.saicone.onetimepack.core.Processor;
+import com.saicone.onetimepack.module.metrics.HandlerTimings;
+import com.saicone.onetimepack.module.metrics.PackMetrics;
 import net.md_5.bungee.api.ChatColor;
 import net.md_5.bungee.api.CommandSender;
 import net.md_5.bungee.api.ProxyServer;
@@ -57,7 +59,7 @@ public class BungeePlugin extends Plugin implements Listener, OneTimePack.Provid
 
     @EventHandler
     public void onDisconnect(PlayerDisconnectEvent event) {
-        OneTimePack.get().getPacketHandler().clear(event.getPlayer().getUniqueId());
+        OneTimePack.get().getPacketHandler().disconnect(event.getPlayer().getUniqueId());
     }
 
     @Override
@@ -109,6 +111,28 @@ public class BungeePlugin extends Plugin implements Listener, OneTimePack.Provid
                 sender.sendMessage(parseComponent("&aPlugin successfully reloaded [&f" + time + " ms&a]"));
                 return;
             }
+            if (args.length >= 1 && args[0].equalsIgnoreCase("metrics")) {
+                final PackMetrics metrics = OneTimePack.get().getPacketHandler().getMetrics();
+                if (metrics == null) {
+                    sender.sendMessage(parseComponent("&cMetrics are disabled on settings.yml"));
+                    return;
+                }
+                for (String line : metrics.summary()) {
+                    sender.sendMessage(parseComponent(line));
+                }
+                return;
+            }
+            if (args.length >= 1 && args[0].equalsIgnoreCase("timings")) {
+                final HandlerTimings timings = OneTimePack.get().getPacketHandler().getTimings();
+                if (timings == null) {
+                    sender.sendMessage(parseComponent("&cTimings are disabled on settings.yml"));
+                    return;
+                }
+                for (String line : timings.summary()) {
+                    sender.sendMessage(parseComponent(line));
+                }
+                return;
+            }
             sender.sendMessage(parseComponent("&a&lOneTimePack &e&lv" + BungeePlugin.get().getDescription().getVersion()));
         }
     }
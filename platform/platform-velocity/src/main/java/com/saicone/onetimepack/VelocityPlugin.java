@@ -3,6 +3,8 @@ package com.saicone.onetimepack;
 import com.saicone.onetimepack.core.PacketUser;
 import com.saicone.onetimepack.core.Processor;
 import com.saicone.onetimepack.core.VelocityPacketUser;
+import com.saicone.onetimepack.module.metrics.HandlerTimings;
+import com.saicone.onetimepack.module.metrics.PackMetrics;
 import com.velocitypowered.api.command.CommandSource;
 import com.velocitypowered.api.command.SimpleCommand;
 import com.velocitypowered.api.event.connection.DisconnectEvent;
@@ -55,7 +57,7 @@ public class VelocityPlugin implements OneTimePack.Provider {
     }
 
     public void onDisconnect(DisconnectEvent event) {
-        OneTimePack.get().getPacketHandler().clear(event.getPlayer().getUniqueId());
+        OneTimePack.get().getPacketHandler().disconnect(event.getPlayer().getUniqueId());
     }
 
     public ProxyServer getProxy() {
@@ -105,7 +107,7 @@ public class VelocityPlugin implements OneTimePack.Provider {
     public static class VelocityCommand implements SimpleCommand {
 
         private static final String VERSION = "${version}";
-        private static final List<String> SUGGESTIONS = List.of("reload");
+        private static final List<String> SUGGESTIONS = List.of("reload", "metrics", "timings");
 
         @Override
         public void execute(Invocation invocation) {
@@ -117,6 +119,28 @@ public class VelocityPlugin implements OneTimePack.Provider {
                 source.sendMessage(parseComponent("&aPlugin successfully reloaded [&f" + time + " ms&a]"));
                 return;
             }
+            if (invocation.arguments().length >= 1 && invocation.arguments()[0].equalsIgnoreCase("metrics")) {
+                final PackMetrics metrics = OneTimePack.get().getPacketHandler().getMetrics();
+                if (metrics == null) {
+                    source.sendMessage(parseComponent("&cMetrics are disabled on settings.yml"));
+                    return;
+                }
+                for (String line : metrics.summary()) {
+                    source.sendMessage(parseComponent(line));
+                }
+                return;
+            }
+            if (invocation.arguments().length >= 1 && invocation.arguments()[0].equalsIgnoreCase("timings")) {
+                final HandlerTimings timings = OneTimePack.get().getPacketHandler().getTimings();
+                if (timings == null) {
+                    source.sendMessage(parseComponent("&cTimings are disabled on settings.yml"));
+                    return;
+                }
+                for (String line : timings.summary()) {
+                    source.sendMessage(parseComponent(line));
+                }
+                return;
+            }
             source.sendMessage(parseComponent("&a&lOneTimePack &e&lv" + VERSION));
         }
 
@@ -29,7 +29,7 @@ public class VelocityProtocolizeProcessor extends ProtocolizeProcessor<StartUpda
         return switch (name) {
             case "UUID" -> ResourcePackRequestPacket::getId;
             case "URL" -> ResourcePackRequestPacket::getUrl;
-            case "HASH" -> ResourcePackRequestPacket::getHash;
+            case "HASH" -> packet -> PackHash.of(packet.getHash());
             case "PROMPT" -> pack -> pack.getPrompt() == null ? null : pack.getPrompt().getComponent();
             case "ALL" -> pack -> pack;
             case "ANY" -> pack -> true;
@@ -79,6 +79,11 @@ public class VelocityProtocolizeProcessor extends ProtocolizeProcessor<StartUpda
         }
     }
 
+    @Override
+    protected @Nullable Protocol getState(@NotNull ProtocolizePlayer player) {
+        return proxy.getPlayer(player.uniqueId()).map(this::getProtocol).orElse(null);
+    }
+
     @Override
     public void clearPackets(@NotNull ProtocolizePlayer player, @NotNull Protocol state) {
         proxy.getPlayer(player.uniqueId()).ifPresent(Audience::clearResourcePacks);